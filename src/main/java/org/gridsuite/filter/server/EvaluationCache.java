@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import com.powsybl.iidm.network.VariantManagerConstants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gridsuite.filter.AbstractFilter;
+import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Least recently used, in-memory cache of the filters evaluations, for a version of a filter on a network variant.
+ * <p>
+ * An evaluation also depends on the filters referenced by the rules of the filter, so the versions of the filters
+ * loaded while evaluating it are kept and checked against the database before the result is reused. The results
+ * are dropped when they exceed their memory budget, estimated from the number and the length of the identifiers,
+ * and after the time to live of the networks they come from, which may have been modified since.
+ * The results returned are shared and must not be modified. Only the number of identifiables is kept for the
+ * evaluations made to count them.
+ * <p>
+ * As the {@link NetworkCache}, which it follows, the cache is disabled by default, with a size of 0: the results of a
+ * network are only dropped along with the network, on its time to live or on its {@link #invalidateNetwork
+ * invalidation}, and its time to live defaults to the one of the networks.
+ *
+ * @author agent <agent at local>
+ */
+@Service
+public class EvaluationCache {
+
+    static final String CACHE_NAME = "evaluations";
+
+    // rough size of the entry and of each identifiable in the memory, added to the size of the identifiers
+    private static final long ENTRY_WEIGHT = 256;
+    private static final long IDENTIFIABLE_WEIGHT = 96;
+
+    private final long maxWeight;
+
+    private final long timeToLiveMillis;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weight;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    private record Key(UUID filterId, long modificationTime, UUID networkUuid, String variantId) {
+    }
+
+    /**
+     * @param result the identifiables, null if only counted
+     * @param dependencyVersions modification time of each referenced filter, null for a filter not found
+     */
+    private record Entry(List<IdentifiableAttributes> result, long count, Map<UUID, Long> dependencyVersions, long weight, long creationTimeMillis) {
+    }
+
+    public EvaluationCache(MeterRegistry meterRegistry,
+                           @Value("${filter.evaluation-cache.max-size:0}") DataSize maxSize,
+                           @Value("${filter.evaluation-cache.time-to-live:${filter.network-cache.time-to-live:PT1M}}") Duration timeToLive) {
+        this.maxWeight = maxSize.toBytes();
+        this.timeToLiveMillis = timeToLive.toMillis();
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, EvaluationCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.weight", this, EvaluationCache::getWeight).tag("cache", CACHE_NAME).baseUnit("bytes").register(meterRegistry);
+    }
+
+    private static Key getKey(AbstractFilter filter, UUID networkUuid, String variantId) {
+        return new Key(filter.getId(), filter.getModificationDate().getTime(), networkUuid,
+                variantId != null ? variantId : VariantManagerConstants.INITIAL_VARIANT_ID);
+    }
+
+    /**
+     * @param getModificationDates gives the current modification dates of the filters found among the given ids,
+     *                             called only when the result has been cached and depends on other filters
+     */
+    public Optional<List<IdentifiableAttributes>> get(AbstractFilter filter, UUID networkUuid, String variantId,
+                                                      Function<Collection<UUID>, Map<UUID, Date>> getModificationDates) {
+        return getEntry(filter, networkUuid, variantId, getModificationDates, true).map(Entry::result);
+    }
+
+    /**
+     * Same as {@link #get} for the number of identifiables, given by the counted and the complete results
+     */
+    public OptionalLong getCount(AbstractFilter filter, UUID networkUuid, String variantId,
+                                 Function<Collection<UUID>, Map<UUID, Date>> getModificationDates) {
+        return getEntry(filter, networkUuid, variantId, getModificationDates, false)
+                .map(entry -> OptionalLong.of(entry.count()))
+                .orElse(OptionalLong.empty());
+    }
+
+    private Optional<Entry> getEntry(AbstractFilter filter, UUID networkUuid, String variantId,
+                                     Function<Collection<UUID>, Map<UUID, Date>> getModificationDates, boolean completeResult) {
+        Key key = getKey(filter, networkUuid, variantId);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.creationTimeMillis() > timeToLiveMillis) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null && (!completeResult || entry.result() != null) && (entry.dependencyVersions().isEmpty()
+                || isUpToDate(entry.dependencyVersions(), getModificationDates.apply(entry.dependencyVersions().keySet())))) {
+            hitCounter.increment();
+            return Optional.of(entry);
+        }
+        missCounter.increment();
+        return Optional.empty();
+    }
+
+    private static boolean isUpToDate(Map<UUID, Long> dependencyVersions, Map<UUID, Date> modificationDates) {
+        return dependencyVersions.entrySet().stream().allMatch(dependencyVersion -> {
+            Date modificationDate = modificationDates.get(dependencyVersion.getKey());
+            return Objects.equals(dependencyVersion.getValue(), modificationDate != null ? modificationDate.getTime() : null);
+        });
+    }
+
+    /**
+     * @param dependencies the referenced filters loaded by the evaluation, null for the ones not found
+     */
+    public synchronized void put(AbstractFilter filter, UUID networkUuid, String variantId, Map<UUID, AbstractFilter> dependencies,
+                                 List<IdentifiableAttributes> result) {
+        long entryWeight = ENTRY_WEIGHT + result.stream()
+                .mapToLong(identifiableAttributes -> IDENTIFIABLE_WEIGHT + 2L * identifiableAttributes.getId().length())
+                .sum();
+        put(getKey(filter, networkUuid, variantId), new Entry(result, result.size(), getDependencyVersions(dependencies), entryWeight, System.currentTimeMillis()));
+    }
+
+    /**
+     * Same as {@link #put} for the number of identifiables, a complete result already cached is kept
+     */
+    public synchronized void putCount(AbstractFilter filter, UUID networkUuid, String variantId, Map<UUID, AbstractFilter> dependencies,
+                                      long count) {
+        Key key = getKey(filter, networkUuid, variantId);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.result() == null) {
+            put(key, new Entry(null, count, getDependencyVersions(dependencies), ENTRY_WEIGHT, System.currentTimeMillis()));
+        }
+    }
+
+    private static Map<UUID, Long> getDependencyVersions(Map<UUID, AbstractFilter> dependencies) {
+        Map<UUID, Long> dependencyVersions = new HashMap<>();
+        dependencies.forEach((id, dependency) -> dependencyVersions.put(id, dependency != null ? dependency.getModificationDate().getTime() : null));
+        return dependencyVersions;
+    }
+
+    private void put(Key key, Entry entry) {
+        long entryWeight = entry.weight();
+        if (entryWeight > maxWeight) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        weight += entryWeight;
+        Iterator<Map.Entry<Key, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (weight > maxWeight) {
+            weight -= leastRecentlyUsed.next().getValue().weight();
+            leastRecentlyUsed.remove();
+            evictionCounter.increment();
+        }
+    }
+
+    private void remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight();
+        }
+    }
+
+    /**
+     * Drop the evaluations of the given filters and of the filters referencing them
+     */
+    public synchronized void invalidateFilters(Collection<UUID> filterIds) {
+        Set<UUID> filterIdsSet = new HashSet<>(filterIds);
+        removeIf(entry -> filterIdsSet.contains(entry.getKey().filterId())
+                || entry.getValue().dependencyVersions().keySet().stream().anyMatch(filterIdsSet::contains));
+    }
+
+    public synchronized void invalidateNetwork(UUID networkUuid) {
+        removeIf(entry -> entry.getKey().networkUuid().equals(networkUuid));
+    }
+
+    private void removeIf(Predicate<Map.Entry<Key, Entry>> predicate) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (predicate.test(entry)) {
+                weight -= entry.getValue().weight();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+}
@@ -0,0 +1,494 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import com.powsybl.commons.PowsyblException;
+import com.powsybl.iidm.network.Identifiable;
+import org.gridsuite.filter.AbstractFilter;
+import org.gridsuite.filter.FilterLoader;
+import org.gridsuite.filter.expertfilter.ExpertFilter;
+import org.gridsuite.filter.expertfilter.expertrule.AbstractExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.CombinatorExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.EnumExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.FilterUuidExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.NumberExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.PropertiesExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.StringExpertRule;
+import org.gridsuite.filter.identifierlistfilter.FilterEquipments;
+import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
+import org.gridsuite.filter.utils.EquipmentType;
+import org.gridsuite.filter.utils.expertfilter.CombinatorType;
+import org.gridsuite.filter.utils.expertfilter.DataType;
+import org.gridsuite.filter.utils.expertfilter.ExpertFilterUtils;
+import org.gridsuite.filter.utils.expertfilter.FieldType;
+import org.gridsuite.filter.utils.expertfilter.OperatorType;
+
+import java.util.*;
+import java.util.function.DoublePredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rules of an expert filter compiled once for all the evaluations of a version of the filter.
+ * <p>
+ * The nested combinators of the same type are flattened, the bounds and the sets of values of the operators are
+ * prepared once instead of for each equipment, and the equipments of the filters referenced by a rule are collected
+ * once by evaluation instead of for each equipment. The field values are still read by the filter library, and the
+ * rules without a compiled form are evaluated by it, so that the results are the ones of the rules themselves.
+ * <p>
+ * The rules on the fields of a {@link NetworkIndex} select their equipments from the index of the network when one
+ * is given, and are evaluated first in their combinator, so that the other rules are only evaluated on the
+ * equipments they select. When the selections of these rules bound the equipments matching all the rules, only the
+ * selected equipments are {@link #getSelectedIdentifiables evaluated}.
+ *
+ * @author agent <agent at local>
+ */
+public final class ExpertFilterPlan {
+
+    private final Node root;
+
+    // number of rules referencing other filters, each one keeping the equipments of these filters during an evaluation
+    private final int partOfCount;
+
+    // number of rules on indexed fields, each one keeping the equipments it selects during an evaluation
+    private final int indexedCount;
+
+    private interface Node {
+        boolean test(Identifiable<?> identifiable, Evaluation evaluation);
+
+        /**
+         * @return the equipments among which are the ones matching the node, null if they are not bounded by an index
+         */
+        default BitSet select(Evaluation evaluation) {
+            return null;
+        }
+    }
+
+    private interface IndexQuery {
+        BitSet select(NetworkIndex networkIndex, EquipmentType equipmentType);
+    }
+
+    /**
+     * A rule on an indexed field, evaluated by its node when there is no index or the equipment is not indexed
+     */
+    private record IndexedNode(int index, IndexQuery query, Node node) implements Node {
+        @Override
+        public boolean test(Identifiable<?> identifiable, Evaluation evaluation) {
+            BitSet selection = evaluation.getSelection(index, query);
+            if (selection != null) {
+                int number = evaluation.networkIndex.getNumber(evaluation.equipmentType, identifiable.getId());
+                if (number >= 0) {
+                    return selection.get(number);
+                }
+            }
+            return node.test(identifiable, evaluation);
+        }
+
+        @Override
+        public BitSet select(Evaluation evaluation) {
+            return evaluation.getSelection(index, query);
+        }
+    }
+
+    private record AndNode(Node[] children) implements Node {
+        @Override
+        public boolean test(Identifiable<?> identifiable, Evaluation evaluation) {
+            for (Node child : children) {
+                if (!child.test(identifiable, evaluation)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public BitSet select(Evaluation evaluation) {
+            BitSet selection = null;
+            for (Node child : children) {
+                BitSet childSelection = child.select(evaluation);
+                if (childSelection != null) {
+                    if (selection == null) {
+                        selection = (BitSet) childSelection.clone();
+                    } else {
+                        selection.and(childSelection);
+                    }
+                }
+            }
+            return selection;
+        }
+    }
+
+    private record OrNode(Node[] children) implements Node {
+        @Override
+        public boolean test(Identifiable<?> identifiable, Evaluation evaluation) {
+            for (Node child : children) {
+                if (child.test(identifiable, evaluation)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public BitSet select(Evaluation evaluation) {
+            BitSet selection = new BitSet();
+            for (Node child : children) {
+                BitSet childSelection = child.select(evaluation);
+                if (childSelection == null) {
+                    return null;
+                }
+                selection.or(childSelection);
+            }
+            return selection;
+        }
+    }
+
+    /**
+     * State of one evaluation of the plan
+     */
+    private static final class Evaluation {
+        // the field of a rule may not be supported by the type of equipment, the rule then reports it itself
+        private static final BitSet NOT_INDEXED = new BitSet();
+
+        private final EquipmentType equipmentType;
+
+        private final NetworkIndex networkIndex;
+
+        private final List<Set<String>> partOfIds;
+
+        private final List<BitSet> selections;
+
+        private FilterLoader filterLoader;
+
+        private Map<UUID, FilterEquipments> cachedUuidFilters;
+
+        private Evaluation(EquipmentType equipmentType, NetworkIndex networkIndex, int partOfCount, int indexedCount) {
+            this.equipmentType = equipmentType;
+            this.networkIndex = networkIndex;
+            this.partOfIds = new ArrayList<>(Collections.nCopies(partOfCount, null));
+            this.selections = new ArrayList<>(Collections.nCopies(indexedCount, null));
+        }
+
+        /**
+         * @return the equipments selected by the index, null if there is no index
+         */
+        private BitSet getSelection(int index, IndexQuery query) {
+            if (networkIndex == null) {
+                return null;
+            }
+            BitSet selection = selections.get(index);
+            if (selection == null) {
+                try {
+                    selection = query.select(networkIndex, equipmentType);
+                } catch (PowsyblException e) {
+                    selection = NOT_INDEXED;
+                }
+                selections.set(index, selection);
+            }
+            return selection != NOT_INDEXED ? selection : null;
+        }
+    }
+
+    private ExpertFilterPlan(Node root, int partOfCount, int indexedCount) {
+        this.root = root;
+        this.partOfCount = partOfCount;
+        this.indexedCount = indexedCount;
+    }
+
+    public static ExpertFilterPlan compile(AbstractExpertRule rules) {
+        Compiler compiler = new Compiler();
+        Node root = compiler.compile(rules);
+        return new ExpertFilterPlan(root, compiler.partOfCount, compiler.indexedCount);
+    }
+
+    /**
+     * @param networkIndex the indexes of the network the filter is evaluated on, null to evaluate all the rules on
+     *                     all the equipments
+     * @return a copy of the filter evaluating this plan, to be used for a single evaluation
+     */
+    public ExpertFilter bind(ExpertFilter filter, NetworkIndex networkIndex) {
+        EquipmentType equipmentType = filter.getEquipmentType();
+        Evaluation evaluation = new Evaluation(equipmentType, NetworkIndex.isIndexed(equipmentType) ? networkIndex : null, partOfCount, indexedCount);
+        return ExpertFilter.builder()
+                .id(filter.getId())
+                .modificationDate(filter.getModificationDate())
+                .equipmentType(equipmentType)
+                .topologyKind(filter.getTopologyKind())
+                .rules(new CompiledRule(root, evaluation))
+                .build();
+    }
+
+    /**
+     * @param filter a filter bound to a plan, on an equipment type with an index
+     * @return the equipments matching the filter, in the order of the network, evaluated only on the equipments its
+     * rules select from the index, or empty if they are not bounded by the index and all the equipments of the type
+     * are to be evaluated by the filter library
+     */
+    public static Optional<List<Identifiable<?>>> getSelectedIdentifiables(AbstractFilter filter, FilterLoader filterLoader) {
+        return getSelectedIdentifiableStream(filter, filterLoader).map(Stream::toList);
+    }
+
+    /**
+     * Same as {@link #getSelectedIdentifiables} for the number of equipments only, counted without collecting them
+     */
+    public static OptionalLong countSelectedIdentifiables(AbstractFilter filter, FilterLoader filterLoader) {
+        return getSelectedIdentifiableStream(filter, filterLoader)
+                .map(identifiables -> OptionalLong.of(identifiables.count()))
+                .orElseGet(OptionalLong::empty);
+    }
+
+    private static Optional<Stream<Identifiable<?>>> getSelectedIdentifiableStream(AbstractFilter filter, FilterLoader filterLoader) {
+        if (!(filter instanceof ExpertFilter expertFilter) || !(expertFilter.getRules() instanceof CompiledRule compiledRule)
+                || compiledRule.evaluation.networkIndex == null) {
+            return Optional.empty();
+        }
+        Evaluation evaluation = compiledRule.evaluation;
+        BitSet selection = compiledRule.root.select(evaluation);
+        if (selection == null) {
+            return Optional.empty();
+        }
+        // same as the filter library, the equipments of the referenced filters are cached for one evaluation
+        Map<UUID, FilterEquipments> cachedUuidFilters = new HashMap<>();
+        return Optional.of(evaluation.networkIndex.getIdentifiableStream(evaluation.equipmentType, selection)
+                .filter(identifiable -> compiledRule.evaluateRule(identifiable, filterLoader, cachedUuidFilters)));
+    }
+
+    /**
+     * The plan seen as a rule by the filter library
+     */
+    private static final class CompiledRule extends AbstractExpertRule {
+        private final Node root;
+
+        private final Evaluation evaluation;
+
+        private CompiledRule(Node root, Evaluation evaluation) {
+            this.root = root;
+            this.evaluation = evaluation;
+        }
+
+        @Override
+        public boolean evaluateRule(Identifiable<?> identifiable, FilterLoader filterLoader, Map<UUID, FilterEquipments> cachedUuidFilters) {
+            evaluation.filterLoader = filterLoader;
+            evaluation.cachedUuidFilters = cachedUuidFilters;
+            return root.test(identifiable, evaluation);
+        }
+
+        @Override
+        public DataType getDataType() {
+            return DataType.COMBINATOR;
+        }
+
+        @Override
+        public String getStringValue() {
+            return null;
+        }
+    }
+
+    private static final class Compiler {
+        private int partOfCount;
+
+        private int indexedCount;
+
+        private Node compile(AbstractExpertRule rule) {
+            Node node = compileRule(rule);
+            IndexQuery query = getIndexQuery(rule);
+            return query != null ? new IndexedNode(indexedCount++, query, node) : node;
+        }
+
+        private Node compileRule(AbstractExpertRule rule) {
+            if (rule instanceof CombinatorExpertRule combinatorRule) {
+                return compileCombinator(combinatorRule);
+            } else if (rule instanceof FilterUuidExpertRule filterUuidRule) {
+                return compilePartOf(filterUuidRule);
+            } else if (rule != null && rule.getClass() == StringExpertRule.class) {
+                return compileString((StringExpertRule) rule);
+            } else if (rule instanceof NumberExpertRule numberRule) {
+                return compileNumber(numberRule);
+            }
+            return interpreted(rule);
+        }
+
+        private Node compileCombinator(CombinatorExpertRule rule) {
+            CombinatorType combinator = rule.getCombinator();
+            if (rule.getRules() == null || combinator != CombinatorType.AND && combinator != CombinatorType.OR) {
+                return interpreted(rule);
+            }
+            List<Node> nodes = new ArrayList<>();
+            addFlattened(rule, combinator, nodes);
+            // stable, the rules selecting from an index first
+            nodes.sort(Comparator.comparing(node -> !(node instanceof IndexedNode)));
+            Node[] children = nodes.toArray(Node[]::new);
+            return combinator == CombinatorType.AND ? new AndNode(children) : new OrNode(children);
+        }
+
+        // the rules of a nested combinator of the same type are evaluated in the same order as in the nested combinator
+        private void addFlattened(CombinatorExpertRule rule, CombinatorType combinator, List<Node> nodes) {
+            for (AbstractExpertRule childRule : rule.getRules()) {
+                if (childRule instanceof CombinatorExpertRule childCombinatorRule && childCombinatorRule.getCombinator() == combinator
+                        && childCombinatorRule.getRules() != null) {
+                    addFlattened(childCombinatorRule, combinator, nodes);
+                } else {
+                    nodes.add(compile(childRule));
+                }
+            }
+        }
+
+        private Node compilePartOf(FilterUuidExpertRule rule) {
+            OperatorType operator = rule.getOperator();
+            if (rule.getValues() == null || operator != OperatorType.IS_PART_OF && operator != OperatorType.IS_NOT_PART_OF) {
+                return interpreted(rule);
+            }
+            FieldType field = rule.getField();
+            Set<String> filterUuids = rule.getValues();
+            boolean partOf = operator == OperatorType.IS_PART_OF;
+            int index = partOfCount++;
+            return (identifiable, evaluation) -> {
+                String fieldValue = ExpertFilterUtils.getFieldValue(field, null, identifiable);
+                Set<String> ids = evaluation.partOfIds.get(index);
+                if (ids == null) {
+                    ids = ExpertFilterUtils.getFilterEquipments(identifiable.getNetwork(), filterUuids, evaluation.filterLoader, evaluation.cachedUuidFilters)
+                            .stream()
+                            .flatMap(filterEquipments -> filterEquipments.getIdentifiableAttributes().stream())
+                            .map(IdentifiableAttributes::getId)
+                            .collect(Collectors.toSet());
+                    evaluation.partOfIds.set(index, ids);
+                }
+                return ids.contains(fieldValue) == partOf;
+            };
+        }
+
+        private Node compileString(StringExpertRule rule) {
+            OperatorType operator = rule.getOperator();
+            if (rule.getValues() == null || rule.getValues().stream().anyMatch(Objects::isNull)
+                    || operator != OperatorType.IN && operator != OperatorType.NOT_IN) {
+                return interpreted(rule);
+            }
+            FieldType field = rule.getField();
+            // same matching as equalsIgnoreCase
+            Set<String> values = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            values.addAll(rule.getValues());
+            boolean in = operator == OperatorType.IN;
+            return (identifiable, evaluation) -> {
+                String fieldValue = ExpertFilterUtils.getFieldValue(field, null, identifiable);
+                return fieldValue != null && values.contains(fieldValue) == in;
+            };
+        }
+
+        private Node compileNumber(NumberExpertRule rule) {
+            DoublePredicate predicate = getNumberPredicate(rule);
+            if (predicate == null) {
+                return interpreted(rule);
+            }
+            FieldType field = rule.getField();
+            return (identifiable, evaluation) -> {
+                double fieldValue = NumberExpertRule.getNumberValue(ExpertFilterUtils.getFieldValue(field, null, identifiable));
+                return !Double.isNaN(fieldValue) && predicate.test(fieldValue);
+            };
+        }
+
+        /**
+         * @return the test of a number, comparing the numbers as {@link Double#compareTo} does, or null if the
+         * operator or its values have no compiled form
+         */
+        private static DoublePredicate getNumberPredicate(NumberExpertRule rule) {
+            Double value = rule.getValue();
+            Set<Double> values = rule.getValues();
+            OperatorType operator = rule.getOperator();
+            if (operator == OperatorType.BETWEEN || operator == OperatorType.IN || operator == OperatorType.NOT_IN) {
+                if (values == null || values.isEmpty() || values.stream().anyMatch(Objects::isNull)) {
+                    return null;
+                }
+            } else if (value == null) {
+                return null;
+            }
+            return switch (operator) {
+                case EQUALS -> fieldValue -> Double.compare(fieldValue, value) == 0;
+                case GREATER_OR_EQUALS -> fieldValue -> Double.compare(fieldValue, value) >= 0;
+                case GREATER -> fieldValue -> Double.compare(fieldValue, value) > 0;
+                case LOWER_OR_EQUALS -> fieldValue -> Double.compare(fieldValue, value) <= 0;
+                case LOWER -> fieldValue -> Double.compare(fieldValue, value) < 0;
+                case BETWEEN -> {
+                    double min = Collections.min(values);
+                    double max = Collections.max(values);
+                    yield fieldValue -> Double.compare(fieldValue, min) >= 0 && Double.compare(fieldValue, max) <= 0;
+                }
+                case IN -> {
+                    Set<Double> valuesSet = new HashSet<>(values);
+                    yield valuesSet::contains;
+                }
+                case NOT_IN -> {
+                    Set<Double> valuesSet = new HashSet<>(values);
+                    yield fieldValue -> !valuesSet.contains(fieldValue);
+                }
+                default -> null;
+            };
+        }
+
+        /**
+         * @return the selection of the equipments matching the rule from an index, or null if the rule has no index
+         */
+        private static IndexQuery getIndexQuery(AbstractExpertRule rule) {
+            if (rule instanceof NumberExpertRule numberRule && NetworkIndex.isNumberField(rule.getField())) {
+                return getNumberIndexQuery(numberRule);
+            } else if (rule instanceof EnumExpertRule enumRule && rule.getClass() == EnumExpertRule.class && NetworkIndex.isEnumField(rule.getField())) {
+                return getValuesIndexQuery(enumRule.getField(), null, enumRule.getOperator() == OperatorType.EQUALS ? Collections.singletonList(enumRule.getValue())
+                        : enumRule.getOperator() == OperatorType.IN ? enumRule.getValues() : null);
+            } else if (rule != null && rule.getClass() == StringExpertRule.class && NetworkIndex.isStringField(rule.getField())) {
+                StringExpertRule stringRule = (StringExpertRule) rule;
+                return getValuesIndexQuery(stringRule.getField(), null, stringRule.getOperator() == OperatorType.IS ? Collections.singletonList(stringRule.getValue())
+                        : stringRule.getOperator() == OperatorType.IN ? stringRule.getValues() : null);
+            } else if (rule instanceof PropertiesExpertRule propertiesRule && NetworkIndex.isPropertiesField(rule.getField())
+                    && propertiesRule.getPropertyName() != null && propertiesRule.getOperator() == OperatorType.IN) {
+                return getValuesIndexQuery(propertiesRule.getField(), propertiesRule.getPropertyName(), propertiesRule.getPropertyValues());
+            }
+            return null;
+        }
+
+        private static IndexQuery getValuesIndexQuery(FieldType field, String propertyName, Collection<String> values) {
+            if (values == null) {
+                return null;
+            }
+            return (networkIndex, equipmentType) -> networkIndex.selectValues(equipmentType, field, propertyName, values);
+        }
+
+        private static IndexQuery getNumberIndexQuery(NumberExpertRule rule) {
+            FieldType field = rule.getField();
+            Double value = rule.getValue();
+            Set<Double> values = rule.getValues();
+            boolean hasValues = values != null && !values.isEmpty() && values.stream().noneMatch(Objects::isNull);
+            return switch (rule.getOperator()) {
+                case EQUALS -> value == null ? null : (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, value, true, value, true);
+                case GREATER_OR_EQUALS -> value == null ? null
+                        : (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, value, true, Double.POSITIVE_INFINITY, true);
+                case GREATER -> value == null ? null
+                        : (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, value, false, Double.POSITIVE_INFINITY, true);
+                case LOWER_OR_EQUALS -> value == null ? null
+                        : (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, Double.NEGATIVE_INFINITY, true, value, true);
+                case LOWER -> value == null ? null
+                        : (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, Double.NEGATIVE_INFINITY, true, value, false);
+                case BETWEEN -> {
+                    if (!hasValues) {
+                        yield null;
+                    }
+                    double min = Collections.min(values);
+                    double max = Collections.max(values);
+                    yield (networkIndex, equipmentType) -> networkIndex.selectRange(equipmentType, field, min, true, max, true);
+                }
+                case IN -> !hasValues ? null : (networkIndex, equipmentType) -> {
+                    BitSet selection = new BitSet();
+                    values.forEach(v -> selection.or(networkIndex.selectRange(equipmentType, field, v, true, v, true)));
+                    return selection;
+                };
+                default -> null;
+            };
+        }
+
+        private static Node interpreted(AbstractExpertRule rule) {
+            return (identifiable, evaluation) -> rule.evaluateRule(identifiable, evaluation.filterLoader, evaluation.cachedUuidFilters);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gridsuite.filter.expertfilter.ExpertFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Bounded, least recently used, in-memory cache of the {@link ExpertFilterPlan} of the expert filters, for a version
+ * of a filter.
+ * <p>
+ * A plan is only returned for the modification date of the filter it has been compiled from, so a modified filter is
+ * compiled again. The filters without id or modification date, which are not stored, are compiled at each evaluation.
+ * <p>
+ * Requests, hits and evictions are published with the usual Micrometer cache meters, tagged {@code cache=plans}.
+ *
+ * @author agent <agent at local>
+ */
+@Service
+public class ExpertFilterPlanCache {
+
+    static final String CACHE_NAME = "plans";
+
+    private final int maxSize;
+
+    private final Map<UUID, Entry> entriesByFilterId;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    private record Entry(long modificationTime, ExpertFilterPlan plan) {
+    }
+
+    public ExpertFilterPlanCache(MeterRegistry meterRegistry, @Value("${filter.plan-cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entriesByFilterId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                if (size() > ExpertFilterPlanCache.this.maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, ExpertFilterPlanCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * @return the plan of the version of the filter, compiled on the first request
+     */
+    public ExpertFilterPlan get(ExpertFilter filter) {
+        if (filter.getId() == null || filter.getModificationDate() == null) {
+            return ExpertFilterPlan.compile(filter.getRules());
+        }
+        long modificationTime = filter.getModificationDate().getTime();
+        synchronized (this) {
+            Entry entry = entriesByFilterId.get(filter.getId());
+            if (entry != null && entry.modificationTime() == modificationTime) {
+                hitCounter.increment();
+                return entry.plan();
+            }
+        }
+        missCounter.increment();
+        // compiled out of the lock, two requests compiling the same version at the same time get equivalent plans
+        ExpertFilterPlan plan = ExpertFilterPlan.compile(filter.getRules());
+        synchronized (this) {
+            entriesByFilterId.put(filter.getId(), new Entry(modificationTime, plan));
+        }
+        return plan;
+    }
+
+    public synchronized void invalidateAll(Collection<UUID> ids) {
+        ids.forEach(entriesByFilterId::remove);
+    }
+
+    public synchronized void invalidateAll() {
+        entriesByFilterId.clear();
+    }
+
+    public synchronized int size() {
+        return entriesByFilterId.size();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gridsuite.filter.AbstractFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Bounded, least recently used, in-memory cache of the filters definitions.
+ * <p>
+ * An entry is only returned for the modification date read from the database, so a filter changed by another
+ * instance of the server is reloaded even if the invalidation message of that instance has not been received yet.
+ * The filters returned are shared and must not be modified.
+ * <p>
+ * Requests, hits and evictions are published with the usual Micrometer cache meters, tagged {@code cache=filters}.
+ *
+ * @author agent <agent at local>
+ */
+@Service
+public class FilterCache {
+
+    static final String CACHE_NAME = "filters";
+
+    private final int maxSize;
+
+    private final Map<UUID, AbstractFilter> filtersById;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    public FilterCache(MeterRegistry meterRegistry, @Value("${filter.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.filtersById = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, AbstractFilter> eldest) {
+                if (size() > FilterCache.this.maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, FilterCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * @return the cached filter if it has been cached with the given modification date
+     */
+    public synchronized Optional<AbstractFilter> get(UUID id, Date modificationDate) {
+        AbstractFilter filter = filtersById.get(id);
+        if (filter != null && isSameDate(filter.getModificationDate(), modificationDate)) {
+            hitCounter.increment();
+            return Optional.of(filter);
+        }
+        missCounter.increment();
+        return Optional.empty();
+    }
+
+    public synchronized void putAll(Collection<AbstractFilter> filters) {
+        filters.forEach(filter -> filtersById.put(filter.getId(), filter));
+    }
+
+    public synchronized void invalidateAll(Collection<UUID> ids) {
+        ids.forEach(filtersById::remove);
+    }
+
+    public synchronized void invalidateAll() {
+        filtersById.clear();
+    }
+
+    public synchronized int size() {
+        return filtersById.size();
+    }
+
+    private static boolean isSameDate(Date cachedDate, Date modificationDate) {
+        return cachedDate != null && modificationDate != null && cachedDate.getTime() == modificationDate.getTime();
+    }
+}
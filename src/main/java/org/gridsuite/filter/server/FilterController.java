@@ -6,6 +6,7 @@
  */
 package org.gridsuite.filter.server;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -15,12 +16,21 @@ import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.IFilterAttributes;
 import org.gridsuite.filter.identifierlistfilter.FilterEquipments;
 import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
+import org.gridsuite.filter.server.dto.FilterAttributesPage;
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
 import org.gridsuite.filter.server.dto.IdsByGroup;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -41,8 +51,11 @@ public class FilterController {
 
     private final FilterService service;
 
-    public FilterController(FilterService service) {
+    private final ObjectMapper objectMapper;
+
+    public FilterController(FilterService service, ObjectMapper objectMapper) {
         this.service = service;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping(value = "/filters", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -52,17 +65,64 @@ public class FilterController {
         return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(service.getFilters());
     }
 
+    @GetMapping(value = "/filters", params = "limit", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get a page of the filters, ordered by modification date then id")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The page of filters and the cursor of the next one"),
+        @ApiResponse(responseCode = "400", description = "The page size or the cursor is invalid")})
+    public ResponseEntity<FilterAttributesPage> getFiltersPage(@RequestParam("limit") int limit,
+                                                               @RequestParam(name = "after", required = false) String after) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(service.getFilters(after, limit));
+    }
+
+    @GetMapping(value = "/filters", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all filters, one per line, ordered by modification date then id")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "All filters")})
+    public ResponseEntity<StreamingResponseBody> streamFilters() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(outputStream ->
+            service.streamFilters(filterAttributes -> {
+                try {
+                    outputStream.write(objectMapper.writeValueAsBytes(filterAttributes));
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+    }
+
     @GetMapping(value = "/filters/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get filter by id")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The filter"),
+        @ApiResponse(responseCode = "304", description = "The filter has not been modified since the version known by the client"),
         @ApiResponse(responseCode = "404", description = "The filter does not exists")})
-    public ResponseEntity<AbstractFilter> getFilter(@PathVariable("id") UUID id) {
-        return service.getFilter(id).map(filter -> ResponseEntity.ok()
-            .contentType(MediaType.APPLICATION_JSON)
-            .body(filter))
+    public ResponseEntity<AbstractFilter> getFilter(@PathVariable("id") UUID id, WebRequest request) {
+        // conditional requests are answered from the metadata, without loading the filter, and the metadata read
+        // is reused to get the filter from the cache otherwise
+        Optional<IFilterAttributes> filterAttributes = service.getFiltersAttributes(List.of(id)).stream().findFirst();
+        if (filterAttributes.isPresent()
+                && request.checkNotModified(getETag(filterAttributes.get()), filterAttributes.get().getModificationDate().getTime())) {
+            return null;
+        }
+        // without metadata, the filter is looked up again in case its type has changed
+        return (filterAttributes.isPresent() ? service.getFilter(filterAttributes.get()) : service.getFilter(id))
+            .map(filter -> ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(getETag(filter.getId(), filter.getModificationDate()))
+                .lastModified(filter.getModificationDate().getTime())
+                .body(filter))
             .orElse(ResponseEntity.notFound().build());
     }
 
+    private static String getETag(IFilterAttributes filterAttributes) {
+        return getETag(filterAttributes.getId(), filterAttributes.getModificationDate());
+    }
+
+    /**
+     * Strong entity tag of a filter, any modification changing its modification date
+     */
+    private static String getETag(UUID id, Date modificationDate) {
+        return "\"" + id + "-" + modificationDate.getTime() + "\"";
+    }
+
     @PostMapping(value = "/filters", consumes = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Create a filter")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The filter has been successfully created")})
@@ -118,6 +178,15 @@ public class FilterController {
         }
     }
 
+    @PatchMapping(value = "/filters/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Add, remove or change the distribution key of some equipments of an identifier list filter")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The filter has been successfully updated"),
+        @ApiResponse(responseCode = "404", description = "The filter does not exists")})
+    public ResponseEntity<Void> patchIdentifierListFilter(@PathVariable UUID id, @RequestBody IdentifierListFilterPatch patch, @RequestHeader("userId") String userId) {
+        service.patchIdentifierListFilter(id, patch, userId);
+        return ResponseEntity.ok().build();
+    }
+
     @PutMapping(value = "/filters/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Update filters in batch from a given map of each filter id and the corresponding whole new filter object")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Filters have been successfully updated")})
@@ -137,18 +206,30 @@ public class FilterController {
 
     @DeleteMapping(value = "/filters")
     @Operation(summary = "delete the filters")
-    @ApiResponse(responseCode = "200", description = "The filters have been deleted")
-    public ResponseEntity<Void> deleteFilters(@RequestBody List<UUID> ids) {
-        service.deleteFilters(ids);
-        return ResponseEntity.ok().build();
+    @ApiResponse(responseCode = "200", description = "The ids of the filters which have been deleted")
+    public ResponseEntity<List<UUID>> deleteFilters(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.deleteFilters(ids));
     }
 
     @GetMapping(value = "/filters/metadata")
     @Operation(summary = "get filters metadata")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "filters metadata"),
+        @ApiResponse(responseCode = "304", description = "None of the filters has been modified since the version known by the client"),
         @ApiResponse(responseCode = "404", description = "The filters don't exist")})
-    public ResponseEntity<List<AbstractFilter>> getFiltersMetadata(@RequestParam("ids") List<UUID> ids) {
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(service.getFilters(ids));
+    public ResponseEntity<List<IFilterAttributes>> getFiltersMetadata(@RequestParam("ids") List<UUID> ids, WebRequest request) {
+        List<IFilterAttributes> filtersAttributes = service.getFiltersAttributes(ids);
+        // the tag of the list changes with the number of filters found and with any of them, so when a filter is
+        // deleted. Their last modification date would not, so the list has no Last-Modified validator
+        String eTag = "\"" + DigestUtils.md5DigestAsHex((filtersAttributes.size() + ":" + filtersAttributes.stream()
+            .map(FilterController::getETag)
+            .collect(Collectors.joining(",")))
+            .getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(eTag).body(filtersAttributes);
     }
 
     @GetMapping(value = "/filters/{id}/export", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -166,6 +247,32 @@ public class FilterController {
             .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping(value = "/filters/{id}/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Count the identifiables matched by a filter")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "The number of identifiables matched"),
+        @ApiResponse(responseCode = "404", description = "The filter does not exist")
+    })
+    public ResponseEntity<Long> countFilter(@PathVariable("id") UUID id,
+                                            @RequestParam(value = "networkUuid") UUID networkUuid,
+                                            @RequestParam(value = "variantId", required = false) String variantId) {
+        return service.countFilter(id, networkUuid, variantId).map(count -> ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(count))
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/filters/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Count the identifiables matched by each filter of a list, the filters not found are ignored")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The number of identifiables matched by filter id")})
+    public ResponseEntity<Map<UUID, Long>> countFilters(@RequestParam("ids") List<UUID> ids,
+                                                        @RequestParam(value = "networkUuid") UUID networkUuid,
+                                                        @RequestParam(value = "variantId", required = false) String variantId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(service.countFilters(ids, networkUuid, variantId));
+    }
+
     @GetMapping(value = "/filters/identifiables-count", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Calculate the total of identifiables for a list of filters")
     @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "Identifiables count")})
@@ -203,4 +310,12 @@ public class FilterController {
         List<IdentifiableAttributes> identifiableAttributes = service.evaluateFilter(filter, networkUuid, variantId);
         return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(identifiableAttributes);
     }
+
+    @DeleteMapping(value = "/networks/{networkUuid}/cache")
+    @Operation(summary = "Drop a modified network from the caches of all the instances, the next evaluations reload it")
+    @ApiResponses(value = {@ApiResponse(responseCode = "200", description = "The network has been dropped from the caches")})
+    public ResponseEntity<Void> invalidateNetwork(@PathVariable("networkUuid") UUID networkUuid) {
+        service.invalidateNetwork(networkUuid);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -6,40 +6,109 @@
  */
 package org.gridsuite.filter.server;
 
+import com.powsybl.commons.PowsyblException;
 import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.FilterLoader;
-import org.gridsuite.filter.server.repositories.proxies.AbstractFilterRepositoryProxy;
+import org.gridsuite.filter.expertfilter.ExpertFilter;
+import org.gridsuite.filter.expertfilter.expertrule.AbstractExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.CombinatorExpertRule;
+import org.gridsuite.filter.expertfilter.expertrule.FilterUuidExpertRule;
+import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
+ * Loader of the filters referenced by the filters evaluated during one request, on one network variant.
+ * <p>
+ * The filters loaded and the results of the evaluations are kept until the end of the request, so that each
+ * distinct filter is loaded once whatever the number of filters referencing it, and evaluated once whatever the
+ * number of times it is requested. The loader can be used by the concurrent evaluations of a request.
+ *
  * @author Franck Lecuyer <franck.lecuyer at rte-france.com>
  */
 public class FilterLoaderImpl implements FilterLoader {
-    private final Map<String, AbstractFilterRepositoryProxy<?, ?>> filterRepositories;
+    private final FilterService filterService;
 
-    public FilterLoaderImpl(Map<String, AbstractFilterRepositoryProxy<?, ?>> filterRepositories) {
-        this.filterRepositories = filterRepositories;
+    // null for the filters not found
+    private final Map<UUID, AbstractFilter> filtersById = new HashMap<>();
+
+    private final Map<UUID, List<IdentifiableAttributes>> identifiableAttributesById = new ConcurrentHashMap<>();
+
+    private final Set<UUID> checkedFilterIds = new HashSet<>();
+
+    public FilterLoaderImpl(FilterService filterService) {
+        this.filterService = filterService;
+    }
+
+    @Override
+    public synchronized List<AbstractFilter> getFilters(List<UUID> uuids) {
+        List<UUID> idsToLoad = uuids.stream().filter(id -> !filtersById.containsKey(id)).distinct().toList();
+        if (!idsToLoad.isEmpty()) {
+            filterService.getFilters(idsToLoad).forEach(filter -> filtersById.put(filter.getId(), filter));
+            idsToLoad.forEach(id -> filtersById.putIfAbsent(id, null));
+        }
+        // the library expects a null for each filter not found
+        return uuids.stream()
+            .map(filtersById::get).toList();
+    }
+
+    /**
+     * @param evaluation evaluates the filter, called only the first time the filter is evaluated during the request
+     */
+    public List<IdentifiableAttributes> evaluate(AbstractFilter filter, Function<AbstractFilter, List<IdentifiableAttributes>> evaluation) {
+        if (filter.getId() == null) {
+            return evaluation.apply(filter);
+        }
+        List<IdentifiableAttributes> identifiableAttributes = identifiableAttributesById.get(filter.getId());
+        if (identifiableAttributes == null) {
+            identifiableAttributes = evaluation.apply(filter);
+            identifiableAttributesById.put(filter.getId(), identifiableAttributes);
+        }
+        return identifiableAttributes;
     }
 
-    private Optional<AbstractFilter> getFilter(UUID id) {
-        Objects.requireNonNull(id);
-        for (AbstractFilterRepositoryProxy<?, ?> repository : filterRepositories.values()) {
-            Optional<AbstractFilter> res = repository.getFilter(id);
-            if (res.isPresent()) {
-                return res;
+    /**
+     * Check that the filter does not reference itself, directly or through the filters it references
+     *
+     * @throws PowsyblException if a cycle is found
+     */
+    public synchronized void checkReferences(AbstractFilter filter) {
+        checkReferences(filter, new ArrayList<>());
+    }
+
+    private void checkReferences(AbstractFilter filter, List<UUID> path) {
+        if (!(filter instanceof ExpertFilter expertFilter) || expertFilter.getRules() == null || checkedFilterIds.contains(filter.getId())) {
+            return;
+        }
+        path.add(filter.getId());
+        Set<UUID> referencedIds = new LinkedHashSet<>();
+        addReferencedIds(expertFilter.getRules(), referencedIds);
+        for (AbstractFilter referencedFilter : getFilters(new ArrayList<>(referencedIds))) {
+            if (referencedFilter == null) {
+                continue;
             }
+            int cycleStart = path.indexOf(referencedFilter.getId());
+            if (cycleStart >= 0) {
+                throw new PowsyblException("Filter reference cycle: " + path.subList(cycleStart, path.size()).stream()
+                        .map(UUID::toString)
+                        .collect(Collectors.joining(" -> ")) + " -> " + referencedFilter.getId());
+            }
+            checkReferences(referencedFilter, path);
+        }
+        path.remove(path.size() - 1);
+        if (filter.getId() != null) {
+            checkedFilterIds.add(filter.getId());
         }
-        return Optional.empty();
     }
 
-    @Override
-    public List<AbstractFilter> getFilters(List<UUID> uuids) {
-        return uuids.stream()
-            .map(id -> getFilter(id).orElse(null)).toList();
+    private static void addReferencedIds(AbstractExpertRule rule, Set<UUID> referencedIds) {
+        if (rule instanceof CombinatorExpertRule combinatorRule && combinatorRule.getRules() != null) {
+            combinatorRule.getRules().forEach(childRule -> addReferencedIds(childRule, referencedIds));
+        } else if (rule instanceof FilterUuidExpertRule filterUuidRule && filterUuidRule.getValues() != null) {
+            filterUuidRule.getValues().forEach(value -> referencedIds.add(UUID.fromString(value)));
+        }
     }
 }
@@ -9,13 +9,19 @@ package org.gridsuite.filter.server;
 import com.powsybl.commons.PowsyblException;
 import com.powsybl.iidm.network.Network;
 import com.powsybl.network.store.client.NetworkStoreService;
-import com.powsybl.network.store.client.PreloadingStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.collections4.CollectionUtils;
 import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.FilterLoader;
 import org.gridsuite.filter.IFilterAttributes;
+import org.gridsuite.filter.expertfilter.ExpertFilter;
 import org.gridsuite.filter.identifierlistfilter.FilterEquipments;
 import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
+import org.gridsuite.filter.server.configs.FilterEvaluationConfig;
+import org.gridsuite.filter.server.dto.FilterAttributesPage;
+import org.gridsuite.filter.server.dto.FilterCursor;
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
 import org.gridsuite.filter.server.dto.IdsByGroup;
 import org.gridsuite.filter.server.entities.AbstractFilterEntity;
 import org.gridsuite.filter.server.repositories.FilterRepository;
@@ -23,11 +29,16 @@ import org.gridsuite.filter.server.repositories.expertfilter.ExpertFilterReposit
 import org.gridsuite.filter.server.repositories.identifierlistfilter.IdentifierListFilterRepository;
 import org.gridsuite.filter.server.repositories.proxies.AbstractFilterRepositoryProxy;
 import org.gridsuite.filter.server.repositories.proxies.expertfiler.ExpertFilterRepositoryProxy;
+import org.gridsuite.filter.server.repositories.proxies.expertfiler.ExpertRulesStorageMode;
 import org.gridsuite.filter.server.repositories.proxies.identifierlistfilter.IdentifierListFilterRepositoryProxy;
+import org.gridsuite.filter.server.repositories.proxies.identifierlistfilter.IdentifierListStorageMode;
 import org.gridsuite.filter.server.repositories.proxies.scriptfilter.ScriptFilterRepositoryProxy;
 import org.gridsuite.filter.server.repositories.scriptfilter.ScriptFilterRepository;
 import org.gridsuite.filter.utils.FilterServiceUtils;
 import org.gridsuite.filter.utils.FilterType;
+import org.gridsuite.filter.utils.FiltersUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
@@ -36,7 +47,16 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.gridsuite.filter.server.repositories.proxies.AbstractFilterRepositoryProxy.WRONG_FILTER_TYPE;
 
@@ -51,27 +71,60 @@ public class FilterService {
     private static final String FILTER_LIST = "Filter list ";
     private static final String NOT_FOUND = " not found";
     public static final String FILTER_UUIDS_NOT_FOUND = "Some filter uuids have not bean found";
+    public static final int MAX_PAGE_SIZE = 1000;
+    static final String EVALUATION_TIMER = "filter.evaluation";
 
     private final Map<String, AbstractFilterRepositoryProxy<?, ?>> filterRepositories = new HashMap<>();
 
-    private final NetworkStoreService networkStoreService;
+    private final NetworkCache networkCache;
+
+    private final EvaluationCache evaluationCache;
 
     private final NotificationService notificationService;
 
+    private final FilterTypeRegistry filterTypeRegistry;
+
+    private final FilterCache filterCache;
+
+    private final ExpertFilterPlanCache planCache;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService evaluationExecutor;
+
+    private final int evaluationParallelism;
+
     private final FilterService self;
 
     public FilterService(final ScriptFilterRepository scriptFiltersRepository,
                          final IdentifierListFilterRepository identifierListFilterRepository,
                          final ExpertFilterRepository expertFilterRepository,
-                         NetworkStoreService networkStoreService,
+                         NetworkCache networkCache,
+                         EvaluationCache evaluationCache,
                          NotificationService notificationService,
+                         FilterTypeRegistry filterTypeRegistry,
+                         FilterCache filterCache,
+                         ExpertFilterPlanCache planCache,
+                         MeterRegistry meterRegistry,
+                         @Qualifier(FilterEvaluationConfig.FILTER_EVALUATION_EXECUTOR) Optional<ExecutorService> evaluationExecutor,
+                         @Value("${filter.evaluation.parallelism:4}") int evaluationParallelism,
+                         @Value("${filter.expert-rules-storage-mode:TABLES}") ExpertRulesStorageMode expertRulesStorageMode,
+                         @Value("${filter.identifier-list-storage-mode:TABLES}") IdentifierListStorageMode identifierListStorageMode,
                          @Lazy FilterService self) {
         filterRepositories.put(FilterType.SCRIPT.name(), new ScriptFilterRepositoryProxy(scriptFiltersRepository));
-        filterRepositories.put(FilterType.IDENTIFIER_LIST.name(), new IdentifierListFilterRepositoryProxy(identifierListFilterRepository));
+        filterRepositories.put(FilterType.IDENTIFIER_LIST.name(), new IdentifierListFilterRepositoryProxy(identifierListFilterRepository, identifierListStorageMode));
 
-        filterRepositories.put(FilterType.EXPERT.name(), new ExpertFilterRepositoryProxy(expertFilterRepository));
-        this.networkStoreService = networkStoreService;
+        filterRepositories.put(FilterType.EXPERT.name(), new ExpertFilterRepositoryProxy(expertFilterRepository, expertRulesStorageMode));
+        this.networkCache = networkCache;
+        this.evaluationCache = evaluationCache;
         this.notificationService = notificationService;
+        this.filterTypeRegistry = filterTypeRegistry;
+        this.filterCache = filterCache;
+        this.planCache = planCache;
+        this.meterRegistry = meterRegistry;
+        // without the executor, there can not be several instances of a network to evaluate the filters in parallel
+        this.evaluationExecutor = evaluationExecutor.orElse(null);
+        this.evaluationParallelism = evaluationExecutor.isPresent() ? evaluationParallelism : 1;
         this.self = self;
     }
 
@@ -81,29 +134,165 @@ public class FilterService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @param after the cursor of the previous page, null for the first page
+     * @return the filters following the cursor, ordered by modification date then id. Each filter table is read up to
+     * the end of the page only, using its (modification date, id) index.
+     */
+    @Transactional(readOnly = true)
+    public FilterAttributesPage getFilters(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        FilterCursor cursor;
+        try {
+            cursor = after != null ? FilterCursor.parse(after) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        // one more filter than asked tells whether there is a next page
+        List<IFilterAttributes> filters = filterRepositories.values().stream()
+                .flatMap(repository -> repository.getFiltersAttributes(cursor, limit + 1))
+                .sorted(FilterCursor.ORDER)
+                .limit(limit + 1L)
+                .collect(Collectors.toList());
+        if (filters.size() <= limit) {
+            return new FilterAttributesPage(filters, null);
+        }
+        List<IFilterAttributes> page = new ArrayList<>(filters.subList(0, limit));
+        return new FilterAttributesPage(page, FilterCursor.of(page.get(limit - 1)).toString());
+    }
+
+    /**
+     * Pass the attributes of all the filters to the consumer, page after page. Each page is read in its own short
+     * transaction, so that no connection is held while the consumer writes them, and the memory used does not
+     * depend on the number of filters. A filter modified while the pages are read may be passed twice.
+     */
+    public void streamFilters(Consumer<IFilterAttributes> consumer) {
+        streamFilters(consumer, MAX_PAGE_SIZE);
+    }
+
+    void streamFilters(Consumer<IFilterAttributes> consumer, int pageSize) {
+        String after = null;
+        do {
+            FilterAttributesPage page = self.getFilters(after, pageSize);
+            page.getFilters().forEach(consumer);
+            after = page.getNextCursor();
+        } while (after != null);
+    }
+
     public Optional<AbstractFilter> getFilter(UUID id) {
         Objects.requireNonNull(id);
-        for (AbstractFilterRepositoryProxy<?, ?> repository : filterRepositories.values()) {
-            Optional<AbstractFilter> res = repository.getFilter(id);
-            if (res.isPresent()) {
-                return res;
+        Optional<FilterType> filterType = filterTypeRegistry.getFilterType(id);
+        Optional<AbstractFilter> filter = filterType.flatMap(type -> loadFilters(type, List.of(id)).stream().findFirst());
+        if (filter.isEmpty() && filterType.isPresent()) {
+            // the cached type is stale if the filter has been deleted or its type changed by another instance
+            Optional<FilterType> refreshedFilterType = filterTypeRegistry.refreshFilterType(id);
+            if (!refreshedFilterType.equals(filterType)) {
+                filter = refreshedFilterType.flatMap(type -> loadFilters(type, List.of(id)).stream().findFirst());
             }
         }
-        return Optional.empty();
+        return filter;
+    }
+
+    /**
+     * @return the filter whose attributes have just been read, from the {@link FilterCache} if it has not been
+     * modified since it has been cached, without reading its attributes again
+     */
+    public Optional<AbstractFilter> getFilter(IFilterAttributes filterAttributes) {
+        return loadFilters(filterAttributes.getType(), Stream.of(filterAttributes)).stream().findFirst();
+    }
+
+    /**
+     * Only the modification dates are read for the filters in the {@link FilterCache}, the filters not cached or
+     * modified since they have been cached are loaded and cached.
+     */
+    private List<AbstractFilter> loadFilters(FilterType filterType, List<UUID> ids) {
+        return loadFilters(filterType, getRepository(filterType).getFiltersAttributes(ids));
+    }
+
+    private List<AbstractFilter> loadFilters(FilterType filterType, Stream<? extends IFilterAttributes> filtersAttributes) {
+        AbstractFilterRepositoryProxy<?, ?> repository = getRepository(filterType);
+        List<AbstractFilter> filters = new ArrayList<>();
+        List<UUID> missingIds = new ArrayList<>();
+        filtersAttributes.forEach(filterAttributes -> filterCache.get(filterAttributes.getId(), filterAttributes.getModificationDate())
+                .ifPresentOrElse(filters::add, () -> missingIds.add(filterAttributes.getId())));
+        if (!missingIds.isEmpty()) {
+            List<AbstractFilter> loadedFilters = repository.getFilters(missingIds);
+            filterCache.putAll(loadedFilters);
+            filters.addAll(loadedFilters);
+        }
+        return filters;
+    }
+
+    /**
+     * Drop the filters from the cache of every instance of the server
+     */
+    private void invalidateFilters(Collection<UUID> ids) {
+        if (!ids.isEmpty()) {
+            filterCache.invalidateAll(ids);
+            planCache.invalidateAll(ids);
+            evaluationCache.invalidateFilters(ids);
+            notificationService.emitFiltersInvalidated(ids);
+        }
     }
 
+    /**
+     * @return the filters found, in the order of the given ids. Each filter table is queried once, whatever the
+     * number of ids, so that the number of statements does not grow with the size of the request, and only for the
+     * modification dates when the filters are cached.
+     */
     public List<AbstractFilter> getFilters(List<UUID> ids) {
         Objects.requireNonNull(ids);
-        return filterRepositories.values()
+        Map<UUID, FilterType> filterTypes = filterTypeRegistry.getFilterTypes(ids);
+        Map<UUID, AbstractFilter> filtersById = new HashMap<>(loadFilters(filterTypes));
+        // the cached types are stale for the filters deleted or whose type has been changed by another instance
+        List<UUID> notFoundIds = filterTypes.keySet().stream().filter(id -> !filtersById.containsKey(id)).toList();
+        if (!notFoundIds.isEmpty()) {
+            Map<UUID, FilterType> refreshedFilterTypes = new HashMap<>(filterTypeRegistry.refreshFilterTypes(notFoundIds));
+            refreshedFilterTypes.entrySet().removeIf(entry -> entry.getValue() == filterTypes.get(entry.getKey()));
+            filtersById.putAll(loadFilters(refreshedFilterTypes));
+        }
+        return new LinkedHashSet<>(ids).stream()
+                .map(filtersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<UUID, AbstractFilter> loadFilters(Map<UUID, FilterType> filterTypes) {
+        return groupIdsByFilterType(filterTypes).entrySet().stream()
+                .flatMap(entry -> loadFilters(entry.getKey(), entry.getValue()).stream())
+                .collect(Collectors.toMap(AbstractFilter::getId, filter -> filter));
+    }
+
+    /**
+     * @return the attributes of the filters found, in the order of the given ids, without loading the filters bodies
+     */
+    public List<IFilterAttributes> getFiltersAttributes(List<UUID> ids) {
+        Objects.requireNonNull(ids);
+        Map<UUID, IFilterAttributes> filtersAttributesById = groupIdsByFilterType(filterTypeRegistry.getFilterTypes(ids)).entrySet()
                 .stream()
-                .flatMap(repository -> repository.getFilters(ids)
-                        .stream())
+                .flatMap(entry -> getRepository(entry.getKey()).getFiltersAttributes(entry.getValue()))
+                .collect(Collectors.toMap(IFilterAttributes::getId, filterAttributes -> filterAttributes));
+        return new LinkedHashSet<>(ids).stream()
+                .map(filtersAttributesById::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
+    private static Map<FilterType, List<UUID>> groupIdsByFilterType(Map<UUID, FilterType> filterTypes) {
+        return filterTypes.entrySet().stream()
+                .collect(Collectors.groupingBy(Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+    }
+
     @Transactional
     public <F extends AbstractFilter> AbstractFilter createFilter(F filter) {
-        return getRepository(filter).insert(filter);
+        AbstractFilter createdFilter = getRepository(filter).insert(filter);
+        filterTypeRegistry.register(createdFilter.getId(), filter.getType());
+        // a filter with the same id may have been deleted by another instance
+        filterCache.invalidateAll(List.of(createdFilter.getId()));
+        evaluationCache.invalidateFilters(List.of(createdFilter.getId()));
+        return createdFilter;
     }
 
     @Transactional
@@ -117,20 +306,22 @@ public class FilterService {
 
         List<AbstractFilter> createdFilters = new ArrayList<>();
         repositoryFiltersMap.forEach((repository, subFilters) -> createdFilters.addAll(repository.insertAll(subFilters)));
+        filterTypeRegistry.registerAll(createdFilters.stream()
+                .collect(Collectors.toMap(AbstractFilter::getId, AbstractFilter::getType)));
+        List<UUID> createdFilterIds = createdFilters.stream().map(AbstractFilter::getId).toList();
+        filterCache.invalidateAll(createdFilterIds);
+        evaluationCache.invalidateFilters(createdFilterIds);
         return createdFilters;
     }
 
     @Transactional
     public Optional<UUID> duplicateFilter(UUID sourceFilterId) {
-        Optional<AbstractFilter> sourceFilterOptional = getFilter(sourceFilterId);
-        if (sourceFilterOptional.isPresent()) {
+        return filterTypeRegistry.refreshFilterType(sourceFilterId).map(filterType -> {
             UUID newFilterId = UUID.randomUUID();
-            AbstractFilter sourceFilter = sourceFilterOptional.get();
-            sourceFilter.setId(newFilterId);
-            self.createFilter(sourceFilter);
-            return Optional.of(newFilterId);
-        }
-        return Optional.empty();
+            getRepository(filterType).copyAll(Map.of(sourceFilterId, newFilterId));
+            filterTypeRegistry.register(newFilterId, filterType);
+            return newFilterId;
+        });
     }
 
     /**
@@ -138,46 +329,52 @@ public class FilterService {
      */
     @Transactional
     public Map<UUID, UUID> duplicateFilters(List<UUID> filterUuids) {
-        Map<UUID, UUID> uuidsMap = new HashMap<>();
-
-        List<AbstractFilter> sourceFilters = getFilters(filterUuids);
+        Map<UUID, FilterType> sourceFilterTypes = filterTypeRegistry.refreshFilterTypes(filterUuids);
 
         // check whether found all
-        if (sourceFilters.isEmpty() || sourceFilters.size() != filterUuids.size()) {
+        if (sourceFilterTypes.isEmpty() || sourceFilterTypes.size() != filterUuids.size()) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, FILTER_UUIDS_NOT_FOUND);
         }
 
-        sourceFilters.forEach(sourceFilter -> {
+        Map<UUID, UUID> uuidsMap = new HashMap<>();
+        Map<UUID, FilterType> newFilterTypes = new HashMap<>();
+        sourceFilterTypes.forEach((sourceFilterId, filterType) -> {
             UUID newFilterId = UUID.randomUUID();
-            uuidsMap.put(sourceFilter.getId(), newFilterId);
-            sourceFilter.setId(newFilterId);
+            uuidsMap.put(sourceFilterId, newFilterId);
+            newFilterTypes.put(newFilterId, filterType);
         });
 
-        Map<AbstractFilterRepositoryProxy<?, ?>, List<AbstractFilter>> repositoryFiltersMap = sourceFilters.stream()
-                .collect(Collectors.groupingBy(this::getRepository));
-
-        repositoryFiltersMap.forEach(AbstractFilterRepositoryProxy::insertAll);
+        // the filters are copied inside the database, without loading them
+        groupIdsByFilterType(sourceFilterTypes).forEach((filterType, sourceFilterIds) -> getRepository(filterType)
+                .copyAll(sourceFilterIds.stream().collect(Collectors.toMap(id -> id, uuidsMap::get))));
+        filterTypeRegistry.registerAll(newFilterTypes);
 
         return uuidsMap;
     }
 
     private AbstractFilterRepositoryProxy<? extends AbstractFilterEntity,
             ? extends FilterRepository<? extends AbstractFilterEntity>> getRepository(AbstractFilter filter) {
-        return filterRepositories.get(filter.getType().name());
+        return getRepository(filter.getType());
+    }
+
+    private AbstractFilterRepositoryProxy<? extends AbstractFilterEntity,
+            ? extends FilterRepository<? extends AbstractFilterEntity>> getRepository(FilterType filterType) {
+        return filterRepositories.get(filterType.name());
     }
 
     @Transactional
     public <F extends AbstractFilter> AbstractFilter updateFilter(UUID id, F newFilter, String userId) {
-        Optional<AbstractFilter> filterOpt = getFilter(id);
+        // writes never trust the cached type, another instance may have changed it
+        Optional<FilterType> filterTypeOpt = filterTypeRegistry.refreshFilterType(id);
         AbstractFilter modifiedOrCreatedFilter;
-        if (filterOpt.isPresent()) {
-            if (getRepository(filterOpt.get()) == getRepository(newFilter)) { // filter type has not changed
+        if (filterTypeOpt.isPresent()) {
+            if (filterTypeOpt.get() == newFilter.getType()) { // filter type has not changed
                 modifiedOrCreatedFilter = getRepository(newFilter).modify(id, newFilter);
             } else { // filter type has changed
-                if (filterOpt.get().getType() == FilterType.SCRIPT || newFilter.getType() == FilterType.SCRIPT) {
+                if (filterTypeOpt.get() == FilterType.SCRIPT || newFilter.getType() == FilterType.SCRIPT) {
                     throw new PowsyblException(WRONG_FILTER_TYPE);
                 } else {
-                    getRepository(filterOpt.get()).deleteById(id);
+                    getRepository(filterTypeOpt.get()).deleteById(id);
                     newFilter.setId(id);
                     modifiedOrCreatedFilter = self.createFilter(newFilter);
                 }
@@ -185,6 +382,7 @@ public class FilterService {
         } else {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, FILTER_LIST + id + NOT_FOUND);
         }
+        invalidateFilters(List.of(id));
 
         if (userId != null) {
             notificationService.emitElementUpdated(id, userId);
@@ -193,6 +391,20 @@ public class FilterService {
         return modifiedOrCreatedFilter;
     }
 
+    @Transactional
+    public void patchIdentifierListFilter(UUID id, IdentifierListFilterPatch patch, String userId) {
+        Optional<FilterType> filterType = filterTypeRegistry.refreshFilterType(id);
+        if (filterType.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, FILTER_LIST + id + NOT_FOUND);
+        }
+        if (filterType.get() != FilterType.IDENTIFIER_LIST) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Filter " + id + " is not an identifier list filter");
+        }
+        ((IdentifierListFilterRepositoryProxy) getRepository(FilterType.IDENTIFIER_LIST)).patch(id, patch);
+        invalidateFilters(List.of(id));
+        notificationService.emitElementUpdated(id, userId);
+    }
+
     @Transactional
     public List<AbstractFilter> updateFilters(Map<UUID, AbstractFilter> filtersToUpdateMap) {
         return filtersToUpdateMap.keySet().stream()
@@ -200,78 +412,334 @@ public class FilterService {
             .toList();
     }
 
+    @Transactional
     public void deleteFilter(UUID id) {
         Objects.requireNonNull(id);
-        if (filterRepositories.values().stream().noneMatch(repository -> repository.deleteById(id))) {
+        Optional<FilterType> filterType = filterTypeRegistry.refreshFilterType(id);
+        if (filterType.isEmpty() || !getRepository(filterType.get()).deleteById(id)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, FILTER_LIST + id + NOT_FOUND);
         }
+        filterTypeRegistry.unregisterAll(List.of(id));
+        invalidateFilters(List.of(id));
     }
 
-    public void deleteFilters(List<UUID> ids) {
+    @Transactional
+    public List<UUID> deleteFilters(List<UUID> ids) {
         Objects.requireNonNull(ids);
-        filterRepositories.values().forEach(repository -> repository.deleteAllByIds(ids));
+        Map<UUID, FilterType> filterTypes = filterTypeRegistry.refreshFilterTypes(ids);
+        List<UUID> deletedIds = new ArrayList<>();
+        groupIdsByFilterType(filterTypes).forEach((filterType, subIds) -> deletedIds.addAll(getRepository(filterType).deleteAllByIds(subIds)));
+        filterTypeRegistry.unregisterAll(filterTypes.keySet());
+        invalidateFilters(deletedIds);
+        return deletedIds;
     }
 
+    @Transactional
     public void deleteAll() {
         filterRepositories.values().forEach(AbstractFilterRepositoryProxy::deleteAll);
+        filterTypeRegistry.unregisterAll();
+        filterCache.invalidateAll();
+        planCache.invalidateAll();
+        evaluationCache.invalidateAll();
     }
 
-    private Network getNetwork(UUID networkUuid, String variantId) {
-        Network network = networkStoreService.getNetwork(networkUuid, PreloadingStrategy.COLLECTION);
-        if (network == null) {
-            throw new PowsyblException("Network '" + networkUuid + "' not found");
-        }
-        if (variantId != null) {
-            network.getVariantManager().setWorkingVariant(variantId);
-        }
-        return network;
+    /**
+     * Drop the network from the {@link NetworkCache} of every instance of the server
+     */
+    public void invalidateNetwork(UUID networkUuid) {
+        networkCache.invalidate(networkUuid);
+        evaluationCache.invalidateNetwork(networkUuid);
+        notificationService.emitNetworkInvalidated(networkUuid);
     }
 
-    private List<IdentifiableAttributes> getIdentifiableAttributes(AbstractFilter filter, UUID networkUuid, String variantId, FilterLoader filterLoader) {
+    private static void checkEvaluable(AbstractFilter filter) {
         if (filter.getType() == FilterType.SCRIPT) {
             throw new PowsyblException("Filter implementation not yet supported: " + filter.getClass().getSimpleName());
         }
-        Network network = getNetwork(networkUuid, variantId);
-        return FilterServiceUtils.getIdentifiableAttributes(filter, network, filterLoader);
+    }
+
+    /**
+     * Evaluate a stored filter, reusing the result of a previous evaluation of the same version of the filter on the
+     * same network variant if the filters it references have not been modified since. The network is only taken from
+     * the lease when the filter has to be evaluated.
+     */
+    private List<IdentifiableAttributes> getIdentifiableAttributes(AbstractFilter filter, UUID networkUuid, String variantId,
+                                                                   NetworkCache.Lease lease, FilterLoaderImpl filterLoader) {
+        return filterLoader.evaluate(filter, f -> getCachedIdentifiableAttributes(f, networkUuid, variantId, lease, filterLoader));
+    }
+
+    private List<IdentifiableAttributes> getCachedIdentifiableAttributes(AbstractFilter filter, UUID networkUuid, String variantId,
+                                                                         NetworkCache.Lease lease, FilterLoaderImpl filterLoader) {
+        if (filter.getId() == null || filter.getModificationDate() == null) {
+            filterLoader.checkReferences(filter);
+            return evaluate(filter, lease.getNetwork(), lease.getIndex(), filterLoader);
+        }
+        Optional<List<IdentifiableAttributes>> cachedIdentifiableAttributes = evaluationCache.get(filter, networkUuid, variantId, this::getModificationDates);
+        if (cachedIdentifiableAttributes.isPresent()) {
+            return cachedIdentifiableAttributes.get();
+        }
+        filterLoader.checkReferences(filter);
+        Map<UUID, AbstractFilter> dependencies = new HashMap<>();
+        List<IdentifiableAttributes> identifiableAttributes = evaluate(filter, lease.getNetwork(), lease.getIndex(), recordDependencies(filterLoader, dependencies));
+        evaluationCache.put(filter, networkUuid, variantId, dependencies, identifiableAttributes);
+        return identifiableAttributes;
+    }
+
+    /**
+     * Same as {@link #getIdentifiableAttributes} for the number of identifiables only, counted without building their
+     * attributes
+     */
+    private long countIdentifiables(AbstractFilter filter, UUID networkUuid, String variantId,
+                                    NetworkCache.Lease lease, FilterLoaderImpl filterLoader) {
+        if (filter.getId() == null || filter.getModificationDate() == null) {
+            filterLoader.checkReferences(filter);
+            Network network = lease.getNetwork();
+            NetworkIndex networkIndex = lease.getIndex();
+            return time(filter, () -> count(filter, network, networkIndex, filterLoader));
+        }
+        OptionalLong cachedCount = evaluationCache.getCount(filter, networkUuid, variantId, this::getModificationDates);
+        if (cachedCount.isPresent()) {
+            return cachedCount.getAsLong();
+        }
+        filterLoader.checkReferences(filter);
+        Map<UUID, AbstractFilter> dependencies = new HashMap<>();
+        FilterLoader recordingFilterLoader = recordDependencies(filterLoader, dependencies);
+        Network network = lease.getNetwork();
+        NetworkIndex networkIndex = lease.getIndex();
+        long count = time(filter, () -> count(filter, network, networkIndex, recordingFilterLoader));
+        evaluationCache.putCount(filter, networkUuid, variantId, dependencies, count);
+        return count;
+    }
+
+    /**
+     * @param dependencies filled with the filters loaded through the returned loader, null for the ones not found
+     */
+    private static FilterLoader recordDependencies(FilterLoader filterLoader, Map<UUID, AbstractFilter> dependencies) {
+        return uuids -> {
+            List<AbstractFilter> filters = filterLoader.getFilters(uuids);
+            for (int i = 0; i < uuids.size(); i++) {
+                dependencies.put(uuids.get(i), filters.get(i));
+            }
+            return filters;
+        };
+    }
+
+    /**
+     * @param networkIndex the indexes of the network, null if there are none
+     */
+    private List<IdentifiableAttributes> evaluate(AbstractFilter filter, Network network, NetworkIndex networkIndex, FilterLoader filterLoader) {
+        return time(filter, () -> {
+            AbstractFilter compiledFilter = compile(filter, networkIndex);
+            // the attributes of the equipments of an expert filter, as built by the filter library
+            return ExpertFilterPlan.getSelectedIdentifiables(compiledFilter, filterLoader)
+                    .map(identifiables -> identifiables.stream()
+                            .map(identifiable -> new IdentifiableAttributes(identifiable.getId(), identifiable.getType(), null))
+                            .toList())
+                    .orElseGet(() -> FilterServiceUtils.getIdentifiableAttributes(compiledFilter, network, filterLoader));
+        });
+    }
+
+    /**
+     * Count the equipments matching the filter without collecting them, except for the filters other than the expert
+     * ones, and the expert filters on buses, which are only evaluated by the filter library
+     *
+     * @param networkIndex the indexes of the network, null if there are none
+     */
+    private long count(AbstractFilter filter, Network network, NetworkIndex networkIndex, FilterLoader filterLoader) {
+        AbstractFilter compiledFilter = compile(filter, networkIndex);
+        OptionalLong selectedCount = ExpertFilterPlan.countSelectedIdentifiables(compiledFilter, filterLoader);
+        if (selectedCount.isPresent()) {
+            return selectedCount.getAsLong();
+        }
+        if (compiledFilter instanceof ExpertFilter expertFilter && expertFilter.getRules() != null
+                && NetworkIndex.isIndexed(expertFilter.getEquipmentType())) {
+            // same as the filter library, the equipments of the referenced filters are cached for one evaluation
+            Map<UUID, FilterEquipments> cachedUuidFilters = new HashMap<>();
+            return NetworkIndex.getEquipmentStream(network, expertFilter.getEquipmentType())
+                    .filter(identifiable -> expertFilter.getRules().evaluateRule(identifiable, filterLoader, cachedUuidFilters))
+                    .count();
+        }
+        return FiltersUtils.getIdentifiables(compiledFilter, network, filterLoader).size();
+    }
+
+    /**
+     * @return the filter to give to the filter library for one evaluation, evaluating the {@link ExpertFilterPlan}
+     * of the rules for an expert filter
+     */
+    private AbstractFilter compile(AbstractFilter filter, NetworkIndex networkIndex) {
+        if (filter instanceof ExpertFilter expertFilter && expertFilter.getRules() != null) {
+            return planCache.get(expertFilter).bind(expertFilter, networkIndex);
+        }
+        return filter;
+    }
+
+    /**
+     * Time the evaluations by type of filter and of equipment
+     */
+    private <T> T time(AbstractFilter filter, Supplier<T> evaluation) {
+        return Timer.builder(EVALUATION_TIMER)
+                .tag("type", filter.getType().name())
+                .tag("equipmentType", filter.getEquipmentType() != null ? filter.getEquipmentType().name() : "NONE")
+                .register(meterRegistry)
+                .record(evaluation);
+    }
+
+    /**
+     * Evaluate the distinct filters on the network variant, on the evaluation executor when there are several of them,
+     * by at most {@code filter.evaluation.parallelism} tasks each leasing its own instance of the network. Only the
+     * first task may load a private instance, the others run on the cached instances free at the start, if any. The
+     * filters they reference are loaded before, on the calling thread.
+     *
+     * @return the results by filter id
+     */
+    private <R> Map<UUID, R> evaluateFilters(Collection<AbstractFilter> filters, UUID networkUuid, String variantId,
+                                             FilterLoaderImpl filterLoader, BiFunction<AbstractFilter, NetworkCache.Lease, R> evaluation) {
+        List<AbstractFilter> distinctFilters = List.copyOf(filters.stream()
+                .collect(Collectors.toMap(AbstractFilter::getId, filter -> filter, (filter1, filter2) -> filter1, LinkedHashMap::new))
+                .values());
+        distinctFilters.forEach(filterLoader::checkReferences);
+        Map<UUID, R> resultsById = new ConcurrentHashMap<>();
+        AtomicInteger nextFilter = new AtomicInteger();
+        Consumer<NetworkCache.Lease> task = taskLease -> {
+            try (NetworkCache.Lease lease = taskLease) {
+                for (int i = nextFilter.getAndIncrement(); i < distinctFilters.size(); i = nextFilter.getAndIncrement()) {
+                    AbstractFilter filter = distinctFilters.get(i);
+                    resultsById.put(filter.getId(), evaluation.apply(filter, lease));
+                }
+            } catch (RuntimeException e) {
+                // the other tasks stop after their current filter
+                nextFilter.set(distinctFilters.size());
+                throw e;
+            }
+        };
+        int taskCount = Math.min(evaluationParallelism, distinctFilters.size());
+        if (taskCount <= 1) {
+            task.accept(networkCache.lazyLease(networkUuid, variantId));
+            return resultsById;
+        }
+        // the leases are reserved before starting the tasks, so that the first one gets a cached instance if any
+        List<NetworkCache.Lease> leases = new ArrayList<>();
+        leases.add(networkCache.tryLazyLease(networkUuid, variantId).orElseGet(() -> networkCache.lazyLease(networkUuid, variantId)));
+        for (int i = 1; i < taskCount; i++) {
+            Optional<NetworkCache.Lease> lease = networkCache.tryLazyLease(networkUuid, variantId);
+            if (lease.isEmpty()) {
+                break;
+            }
+            leases.add(lease.get());
+        }
+        if (leases.size() == 1) {
+            task.accept(leases.get(0));
+            return resultsById;
+        }
+        try {
+            CompletableFuture.allOf(leases.stream()
+                    .map(lease -> CompletableFuture.runAsync(() -> task.accept(lease), evaluationExecutor))
+                    .toArray(CompletableFuture[]::new))
+                .join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return resultsById;
+    }
+
+    private Map<UUID, Date> getModificationDates(Collection<UUID> ids) {
+        return getFiltersAttributes(new ArrayList<>(ids)).stream()
+                .collect(Collectors.toMap(IFilterAttributes::getId, IFilterAttributes::getModificationDate));
     }
 
     public List<IdentifiableAttributes> evaluateFilter(AbstractFilter filter, UUID networkUuid, String variantId) {
         Objects.requireNonNull(filter);
-        FilterLoader filterLoader = new FilterLoaderImpl(filterRepositories);
-        return getIdentifiableAttributes(filter, networkUuid, variantId, filterLoader);
+        checkEvaluable(filter);
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(this);
+        filterLoader.checkReferences(filter);
+        try (NetworkCache.Lease lease = networkCache.lease(networkUuid, variantId)) {
+            return evaluate(filter, lease.getNetwork(), lease.getIndex(), filterLoader);
+        }
     }
 
     public Optional<List<IdentifiableAttributes>> exportFilter(UUID id, UUID networkUuid, String variantId) {
         Objects.requireNonNull(id);
-        FilterLoader filterLoader = new FilterLoaderImpl(filterRepositories);
-        return getFilter(id).map(filter -> getIdentifiableAttributes(filter, networkUuid, variantId, filterLoader));
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(this);
+        return getFilter(id).map(filter -> {
+            checkEvaluable(filter);
+            try (NetworkCache.Lease lease = networkCache.lazyLease(networkUuid, variantId)) {
+                return getIdentifiableAttributes(filter, networkUuid, variantId, lease, filterLoader);
+            }
+        });
     }
 
     public Map<String, Long> getIdentifiablesCountByGroup(IdsByGroup idsByGroup, UUID networkUuid, String variantId) {
         Objects.requireNonNull(idsByGroup);
-        FilterLoader filterLoader = new FilterLoaderImpl(filterRepositories);
+        // each filter is evaluated once whatever the number of groups listing it
+        Map<UUID, Long> countsById = countFilters(idsByGroup.getIds().values().stream().flatMap(List::stream).toList(), networkUuid, variantId);
+        // a filter listed several times in a group is counted once
         return idsByGroup.getIds().entrySet().stream()
                 .collect(Collectors.toMap(
                         Map.Entry::getKey,
-                        entry -> getFilters(entry.getValue()).stream()
-                                .mapToLong(f -> getIdentifiableAttributes(f, networkUuid, variantId, filterLoader).size())
+                        entry -> new LinkedHashSet<>(entry.getValue()).stream()
+                                .map(countsById::get)
+                                .filter(Objects::nonNull)
+                                .mapToLong(Long::longValue)
                                 .sum()
                         )
                 );
     }
 
+    /**
+     * Count the identifiables matched by a filter, without building their attributes
+     */
+    public Optional<Long> countFilter(UUID id, UUID networkUuid, String variantId) {
+        Objects.requireNonNull(id);
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(this);
+        return getFilter(id).map(filter -> {
+            checkEvaluable(filter);
+            try (NetworkCache.Lease lease = networkCache.lazyLease(networkUuid, variantId)) {
+                return countIdentifiables(filter, networkUuid, variantId, lease, filterLoader);
+            }
+        });
+    }
+
+    /**
+     * @return the number of identifiables matched by each filter found, in the order of the given ids
+     */
+    public Map<UUID, Long> countFilters(List<UUID> ids, UUID networkUuid, String variantId) {
+        Objects.requireNonNull(ids);
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(this);
+        List<AbstractFilter> filters = filterLoader.getFilters(ids).stream()
+                .filter(Objects::nonNull)
+                .toList();
+        filters.forEach(FilterService::checkEvaluable);
+        Map<UUID, Long> countsById = evaluateFilters(filters, networkUuid, variantId, filterLoader,
+            (filter, lease) -> countIdentifiables(filter, networkUuid, variantId, lease, filterLoader));
+        Map<UUID, Long> orderedCountsById = new LinkedHashMap<>();
+        filters.forEach(filter -> orderedCountsById.put(filter.getId(), countsById.get(filter.getId())));
+        return orderedCountsById;
+    }
+
     public List<FilterEquipments> exportFilters(List<UUID> ids, UUID networkUuid, String variantId) {
-        Network network = getNetwork(networkUuid, variantId);
-        FilterLoader filterLoader = new FilterLoaderImpl(filterRepositories);
-        return exportFilters(ids, network, Set.of(), filterLoader);
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(this);
+        // the loader keeps the order of the ids sent, with a null for each filter not found
+        List<AbstractFilter> filters = filterLoader.getFilters(ids).stream()
+            .filter(Objects::nonNull)
+            .toList();
+        Map<UUID, List<IdentifiableAttributes>> identifiableAttributesById = evaluateFilters(filters, networkUuid, variantId, filterLoader,
+            (filter, lease) -> getIdentifiableAttributes(filter, networkUuid, variantId, lease, filterLoader));
+        return filters.stream()
+            .map(filter -> filter.toFilterEquipments(identifiableAttributesById.get(filter.getId())))
+            .toList();
     }
 
     public List<FilterEquipments> exportFilters(List<UUID> ids, Network network, Set<FilterType> filterTypesToExclude, FilterLoader filterLoader) {
+        Map<UUID, AbstractFilter> filtersById = getFilters(ids).stream()
+            .collect(Collectors.toMap(AbstractFilter::getId, filter -> filter));
         // we stream on the ids so that we can keep the same order of ids sent
         return ids.stream()
-            .map(id -> getFilter(id).orElse(null))
+            .map(filtersById::get)
             .filter(filter -> filter != null && !filterTypesToExclude.contains(filter.getType()))
-            .map(filter -> filter.toFilterEquipments(FilterServiceUtils.getIdentifiableAttributes(filter, network, filterLoader)))
+            .map(filter -> filter.toFilterEquipments(evaluate(filter, network, null, filterLoader)))
             .toList();
     }
 }
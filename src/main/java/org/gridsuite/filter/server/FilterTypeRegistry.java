@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gridsuite.filter.server.entities.FilterTypeRegistryEntity;
+import org.gridsuite.filter.server.repositories.FilterTypeRegistryRepository;
+import org.gridsuite.filter.utils.FilterType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Id to {@link FilterType} routing table, persisted in the filter_type_registry table and kept in sync by the
+ * {@link FilterService} write operations.
+ * <p>
+ * Reads go through a bounded, least recently used, in-memory map first. As other instances of the server may have
+ * deleted a filter or changed its type, a cached type is only a hint: callers not finding the filter where the cache
+ * told them to look must {@link #refreshFilterType(UUID) refresh} it from the database.
+ * <p>
+ * Requests, hits and evictions are published with the usual Micrometer cache meters, tagged {@code cache=types}.
+ *
+ * @author agent <agent at local>
+ */
+@Service
+public class FilterTypeRegistry {
+
+    static final String CACHE_NAME = "types";
+
+    private final FilterTypeRegistryRepository filterTypeRegistryRepository;
+
+    private final int maxSize;
+
+    private final Map<UUID, FilterType> cachedFilterTypes;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    public FilterTypeRegistry(FilterTypeRegistryRepository filterTypeRegistryRepository, MeterRegistry meterRegistry,
+                              @Value("${filter.type-cache.max-size:100000}") int maxSize) {
+        this.filterTypeRegistryRepository = filterTypeRegistryRepository;
+        this.maxSize = maxSize;
+        this.cachedFilterTypes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, FilterType> eldest) {
+                if (size() > FilterTypeRegistry.this.maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, FilterTypeRegistry::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    public Optional<FilterType> getFilterType(UUID id) {
+        FilterType filterType;
+        synchronized (this) {
+            filterType = cachedFilterTypes.get(id);
+        }
+        if (filterType != null) {
+            hitCounter.increment();
+            return Optional.of(filterType);
+        }
+        missCounter.increment();
+        return refreshFilterType(id);
+    }
+
+    public Optional<FilterType> refreshFilterType(UUID id) {
+        Optional<FilterType> filterType = filterTypeRegistryRepository.findById(id).map(FilterTypeRegistryEntity::getFilterType);
+        synchronized (this) {
+            filterType.ifPresentOrElse(type -> cachedFilterTypes.put(id, type), () -> cachedFilterTypes.remove(id));
+        }
+        return filterType;
+    }
+
+    /**
+     * @return the types of the given ids, the ids not found in the cache being fetched with a single query
+     */
+    public Map<UUID, FilterType> getFilterTypes(Collection<UUID> ids) {
+        Map<UUID, FilterType> filterTypes = new HashMap<>();
+        List<UUID> missingIds = new ArrayList<>();
+        synchronized (this) {
+            ids.forEach(id -> {
+                FilterType filterType = cachedFilterTypes.get(id);
+                if (filterType != null) {
+                    filterTypes.put(id, filterType);
+                } else {
+                    missingIds.add(id);
+                }
+            });
+        }
+        hitCounter.increment(filterTypes.size());
+        missCounter.increment(missingIds.size());
+        if (!missingIds.isEmpty()) {
+            filterTypes.putAll(refreshFilterTypes(missingIds));
+        }
+        return filterTypes;
+    }
+
+    /**
+     * Same as {@link #getFilterTypes(Collection)} but always reads the persisted registry, to be used by the
+     * write operations which must not act on a stale type
+     */
+    public Map<UUID, FilterType> refreshFilterTypes(Collection<UUID> ids) {
+        Map<UUID, FilterType> filterTypes = filterTypeRegistryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(FilterTypeRegistryEntity::getId, FilterTypeRegistryEntity::getFilterType));
+        synchronized (this) {
+            ids.forEach(cachedFilterTypes::remove);
+            cachedFilterTypes.putAll(filterTypes);
+        }
+        return filterTypes;
+    }
+
+    public void register(UUID id, FilterType filterType) {
+        filterTypeRegistryRepository.save(new FilterTypeRegistryEntity(id, filterType));
+        synchronized (this) {
+            cachedFilterTypes.put(id, filterType);
+        }
+    }
+
+    /**
+     * Register the types of new filters, the ids must not be registered yet
+     */
+    public void registerAll(Map<UUID, FilterType> filterTypes) {
+        filterTypeRegistryRepository.persistAll(filterTypes.entrySet().stream()
+                .map(entry -> new FilterTypeRegistryEntity(entry.getKey(), entry.getValue()))
+                .toList());
+        synchronized (this) {
+            cachedFilterTypes.putAll(filterTypes);
+        }
+    }
+
+    public void unregisterAll(Collection<UUID> ids) {
+        if (!ids.isEmpty()) {
+            filterTypeRegistryRepository.deleteAllByIdIn(ids);
+        }
+        synchronized (this) {
+            ids.forEach(cachedFilterTypes::remove);
+        }
+    }
+
+    public void unregisterAll() {
+        filterTypeRegistryRepository.deleteAll();
+        synchronized (this) {
+            cachedFilterTypes.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return cachedFilterTypes.size();
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import com.powsybl.commons.PowsyblException;
+import com.powsybl.iidm.network.Network;
+import com.powsybl.iidm.network.VariantManagerConstants;
+import com.powsybl.network.store.client.NetworkStoreService;
+import com.powsybl.network.store.client.PreloadingStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.ref.SoftReference;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded, least recently used, in-memory cache of the networks loaded from the network store, so that the
+ * collections they preload are reused by the next evaluations on the same network.
+ * <p>
+ * The network store implementation does not support a working variant per thread nor concurrent reads, so a cached
+ * network is {@link #lease leased} to one request, or one evaluation task, at a time, which selects its variant. Up to
+ * the configured number of instances of a network, one by default, are cached for the concurrent leases, beyond that
+ * a lease loads a private instance instead of waiting, or gets none when {@link #tryLazyLease optional}. The networks
+ * are softly referenced so that they are dropped before running out of memory, and reloaded after the configured
+ * time to live to see the modifications made in the store. The {@link NetworkIndex} of the last variants selected on
+ * a cached instance are kept and dropped along with it, each one with the configured maximum number of indexes. A
+ * private instance has none: its indexes would only serve one evaluation, but cost more than it.
+ * <p>
+ * The network store does not notify the modifications of the networks, so the cache is disabled by default, with a
+ * size of 0: each lease then loads its own instance. It is meant to be enabled where the networks are not modified,
+ * or where their modifications are followed by a call to {@link #invalidate}.
+ *
+ * @author agent <agent at local>
+ */
+@Service
+public class NetworkCache {
+
+    static final String CACHE_NAME = "networks";
+
+    private final NetworkStoreService networkStoreService;
+
+    private final int maxSize;
+
+    private final int maxInstancesPerNetwork;
+
+    private final long timeToLiveMillis;
+
+    private final int maxIndexesPerVariant;
+
+    private final Map<UUID, List<CachedNetwork>> networksByUuid;
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final Counter evictionCounter;
+
+    // number of variants of a cached instance whose indexes are kept
+    private static final int MAX_INDEXED_VARIANTS = 4;
+
+    private record LoadedNetwork(Network network, Map<String, NetworkIndex> indexesByVariant) {
+        private LoadedNetwork(Network network) {
+            this(network, new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, NetworkIndex> eldest) {
+                    return size() > MAX_INDEXED_VARIANTS;
+                }
+            });
+        }
+    }
+
+    private static final class CachedNetwork {
+        // not a lock, the same thread may lease several instances
+        private final Semaphore permit = new Semaphore(1);
+
+        private SoftReference<LoadedNetwork> loadedNetwork = new SoftReference<>(null);
+
+        private long loadTimeMillis;
+    }
+
+    /**
+     * A network selected on a variant for the exclusive use of the caller, until it is closed
+     */
+    public final class Lease implements AutoCloseable {
+        private final UUID networkUuid;
+
+        private final String variantId;
+
+        private Network network;
+
+        private NetworkIndex index;
+
+        // the cached instance reserved for the lease, null for a private instance
+        private CachedNetwork cachedNetwork;
+
+        private Semaphore permit;
+
+        private Lease(UUID networkUuid, String variantId, CachedNetwork cachedNetwork) {
+            this.networkUuid = networkUuid;
+            this.variantId = variantId;
+            this.cachedNetwork = cachedNetwork;
+            this.permit = cachedNetwork != null ? cachedNetwork.permit : null;
+        }
+
+        /**
+         * @throws PowsyblException if the network or the variant does not exist
+         */
+        public Network getNetwork() {
+            if (network == null) {
+                acquire(this);
+            }
+            return network;
+        }
+
+        /**
+         * @return the indexes of the network on the variant, kept with the network when it is cached, null for a
+         * private instance
+         * @throws PowsyblException if the network or the variant does not exist
+         */
+        public NetworkIndex getIndex() {
+            getNetwork();
+            return index;
+        }
+
+        @Override
+        public void close() {
+            if (permit != null) {
+                permit.release();
+                permit = null;
+            }
+        }
+    }
+
+    public NetworkCache(NetworkStoreService networkStoreService,
+                        MeterRegistry meterRegistry,
+                        @Value("${filter.network-cache.max-size:0}") int maxSize,
+                        @Value("${filter.network-cache.max-instances-per-network:1}") int maxInstancesPerNetwork,
+                        @Value("${filter.network-cache.time-to-live:PT1M}") Duration timeToLive,
+                        @Value("${filter.network-cache.max-indexes-per-variant:32}") int maxIndexesPerVariant) {
+        this.networkStoreService = networkStoreService;
+        this.maxSize = maxSize;
+        this.maxInstancesPerNetwork = maxInstancesPerNetwork;
+        this.timeToLiveMillis = timeToLive.toMillis();
+        this.maxIndexesPerVariant = maxIndexesPerVariant;
+        this.networksByUuid = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, List<CachedNetwork>> eldest) {
+                if (size() > NetworkCache.this.maxSize) {
+                    evictionCounter.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        hitCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss").register(meterRegistry);
+        evictionCounter = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", this, NetworkCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * @param variantId the variant to select, the initial variant if null
+     * @throws PowsyblException if the network or the variant does not exist
+     */
+    public Lease lease(UUID networkUuid, String variantId) {
+        Lease lease = new Lease(networkUuid, variantId, null);
+        acquire(lease);
+        return lease;
+    }
+
+    /**
+     * Same as {@link #lease} but the network is only taken, and loaded if needed, when the caller first gets it
+     */
+    public Lease lazyLease(UUID networkUuid, String variantId) {
+        return new Lease(networkUuid, variantId, null);
+    }
+
+    /**
+     * Same as {@link #lazyLease} for an additional instance of the network, which is only worth a cached instance:
+     * none is leased when all the cached instances are, or when the cache is disabled
+     */
+    public Optional<Lease> tryLazyLease(UUID networkUuid, String variantId) {
+        return Optional.ofNullable(leaseCachedNetwork(networkUuid))
+                .map(cachedNetwork -> new Lease(networkUuid, variantId, cachedNetwork));
+    }
+
+    private void acquire(Lease lease) {
+        UUID networkUuid = lease.networkUuid;
+        String workingVariantId = lease.variantId != null ? lease.variantId : VariantManagerConstants.INITIAL_VARIANT_ID;
+        if (lease.cachedNetwork == null) {
+            lease.cachedNetwork = leaseCachedNetwork(networkUuid);
+            lease.permit = lease.cachedNetwork != null ? lease.cachedNetwork.permit : null;
+        }
+        CachedNetwork cachedNetwork = lease.cachedNetwork;
+        if (cachedNetwork == null) {
+            // other requests work on the cached instances, their working variants must not be changed
+            missCounter.increment();
+            Network network = loadNetwork(networkUuid);
+            network.getVariantManager().setWorkingVariant(workingVariantId);
+            lease.network = network;
+            // the indexes would be built for a single evaluation, which the plain rules do in a single pass
+            lease.index = null;
+            return;
+        }
+        try {
+            LoadedNetwork loadedNetwork = cachedNetwork.loadedNetwork.get();
+            long now = System.currentTimeMillis();
+            // a variant created since the network has been loaded is only known by a new instance
+            if (loadedNetwork == null || now - cachedNetwork.loadTimeMillis > timeToLiveMillis
+                    || !loadedNetwork.network().getVariantManager().getVariantIds().contains(workingVariantId)) {
+                missCounter.increment();
+                loadedNetwork = new LoadedNetwork(loadNetwork(networkUuid));
+                cachedNetwork.loadedNetwork = new SoftReference<>(loadedNetwork);
+                cachedNetwork.loadTimeMillis = now;
+            } else {
+                hitCounter.increment();
+            }
+            Network network = loadedNetwork.network();
+            network.getVariantManager().setWorkingVariant(workingVariantId);
+            lease.network = network;
+            lease.index = loadedNetwork.indexesByVariant().computeIfAbsent(workingVariantId, variantId -> new NetworkIndex(network, maxIndexesPerVariant));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                List<CachedNetwork> cachedNetworks = networksByUuid.get(networkUuid);
+                if (cachedNetworks != null) {
+                    cachedNetworks.remove(cachedNetwork);
+                    if (cachedNetworks.isEmpty()) {
+                        networksByUuid.remove(networkUuid);
+                    }
+                }
+            }
+            lease.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a cached instance of the network leased to the caller, null if all of them are leased
+     */
+    private synchronized CachedNetwork leaseCachedNetwork(UUID networkUuid) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        List<CachedNetwork> cachedNetworks = networksByUuid.computeIfAbsent(networkUuid, uuid -> new ArrayList<>());
+        for (CachedNetwork cachedNetwork : cachedNetworks) {
+            if (cachedNetwork.permit.tryAcquire()) {
+                return cachedNetwork;
+            }
+        }
+        if (cachedNetworks.size() < maxInstancesPerNetwork) {
+            CachedNetwork cachedNetwork = new CachedNetwork();
+            cachedNetwork.permit.acquireUninterruptibly();
+            cachedNetworks.add(cachedNetwork);
+            return cachedNetwork;
+        }
+        return null;
+    }
+
+    private Network loadNetwork(UUID networkUuid) {
+        Network network = networkStoreService.getNetwork(networkUuid, PreloadingStrategy.COLLECTION);
+        if (network == null) {
+            throw new PowsyblException("Network '" + networkUuid + "' not found");
+        }
+        return network;
+    }
+
+    /**
+     * Drop the network, to be called when it has been modified. The requests working on it keep their instance.
+     */
+    public synchronized void invalidate(UUID networkUuid) {
+        networksByUuid.remove(networkUuid);
+    }
+
+    public synchronized void invalidateAll() {
+        networksByUuid.clear();
+    }
+
+    public synchronized int size() {
+        return networksByUuid.size();
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server;
+
+import com.powsybl.iidm.network.Identifiable;
+import com.powsybl.iidm.network.Network;
+import org.gridsuite.filter.expertfilter.expertrule.NumberExpertRule;
+import org.gridsuite.filter.utils.EquipmentType;
+import org.gridsuite.filter.utils.expertfilter.ExpertFilterUtils;
+import org.gridsuite.filter.utils.expertfilter.FieldType;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Secondary indexes of the equipments of a network instance on a variant, for the fields most expert rules select
+ * on: the nominal voltages, the countries, the voltage level ids and the properties.
+ * <p>
+ * The equipments of a type are numbered in the order of the network, so that the selected ones are read back in
+ * that order. The index of a field is built on its first request, from the values read by the filter library, and
+ * kept with the cached network until it is reloaded or invalidated: the numeric fields are indexed by the values
+ * sorted in an array along with the numbers of their equipments, the other fields by a bitmap of the equipments for
+ * each value. Each index is about the size of the equipments of its type, so at most the given number of them are
+ * kept, the least recently used one being dropped beyond. The network is only read under its lease, so the indexes
+ * are not thread safe.
+ *
+ * @author agent <agent at local>
+ */
+public final class NetworkIndex {
+
+    private static final Set<FieldType> NUMBER_FIELDS = EnumSet.of(FieldType.NOMINAL_VOLTAGE,
+            FieldType.NOMINAL_VOLTAGE_1, FieldType.NOMINAL_VOLTAGE_2, FieldType.NOMINAL_VOLTAGE_3);
+
+    // compared as is, the other fields are compared ignoring the case as the rules on them do
+    private static final Set<FieldType> ENUM_FIELDS = EnumSet.of(FieldType.COUNTRY, FieldType.COUNTRY_1, FieldType.COUNTRY_2);
+
+    private static final Set<FieldType> STRING_FIELDS = EnumSet.of(FieldType.VOLTAGE_LEVEL_ID,
+            FieldType.VOLTAGE_LEVEL_ID_1, FieldType.VOLTAGE_LEVEL_ID_2, FieldType.VOLTAGE_LEVEL_ID_3);
+
+    private static final Set<FieldType> PROPERTIES_FIELDS = EnumSet.of(FieldType.FREE_PROPERTIES,
+            FieldType.SUBSTATION_PROPERTIES, FieldType.SUBSTATION_PROPERTIES_1, FieldType.SUBSTATION_PROPERTIES_2, FieldType.SUBSTATION_PROPERTIES_3,
+            FieldType.VOLTAGE_LEVEL_PROPERTIES, FieldType.VOLTAGE_LEVEL_PROPERTIES_1, FieldType.VOLTAGE_LEVEL_PROPERTIES_2, FieldType.VOLTAGE_LEVEL_PROPERTIES_3);
+
+    private final Network network;
+
+    private final int maxSize;
+
+    private final Map<EquipmentType, Equipments> equipmentsByType = new EnumMap<>(EquipmentType.class);
+
+    private final Map<FieldKey, FieldIndex> fieldIndexes;
+
+    private record FieldKey(EquipmentType equipmentType, FieldType field, String propertyName) {
+    }
+
+    private interface FieldIndex {
+    }
+
+    /**
+     * @param values the values of the field, sorted as {@link Double#compare} does, without the missing ones
+     * @param numbers the number of the equipment of each value
+     */
+    private record NumberIndex(double[] values, int[] numbers) implements FieldIndex {
+    }
+
+    private record ValueIndex(Map<String, BitSet> equipmentsByValue) implements FieldIndex {
+    }
+
+    private static final class Equipments {
+        private final Map<String, Integer> numbersById = new HashMap<>();
+
+        private final List<Identifiable<?>> identifiables = new ArrayList<>();
+    }
+
+    /**
+     * @param maxSize the maximum number of fields indexed, for all the types of equipments
+     */
+    public NetworkIndex(Network network, int maxSize) {
+        this.network = network;
+        this.maxSize = maxSize;
+        this.fieldIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FieldKey, FieldIndex> eldest) {
+                return size() > NetworkIndex.this.maxSize;
+            }
+        };
+    }
+
+    public static boolean isIndexed(EquipmentType equipmentType) {
+        // the buses depend on the topology kind of the filter
+        return equipmentType != null && equipmentType != EquipmentType.BUS;
+    }
+
+    public static boolean isNumberField(FieldType field) {
+        return NUMBER_FIELDS.contains(field);
+    }
+
+    public static boolean isEnumField(FieldType field) {
+        return ENUM_FIELDS.contains(field);
+    }
+
+    public static boolean isStringField(FieldType field) {
+        return STRING_FIELDS.contains(field);
+    }
+
+    public static boolean isPropertiesField(FieldType field) {
+        return PROPERTIES_FIELDS.contains(field);
+    }
+
+    /**
+     * @return the equipments of an indexed type, as streamed by the filter library
+     */
+    static Stream<? extends Identifiable<?>> getEquipmentStream(Network network, EquipmentType equipmentType) {
+        return switch (equipmentType) {
+            case GENERATOR -> network.getGeneratorStream();
+            case LOAD -> network.getLoadStream();
+            case BATTERY -> network.getBatteryStream();
+            case STATIC_VAR_COMPENSATOR -> network.getStaticVarCompensatorStream();
+            case SHUNT_COMPENSATOR -> network.getShuntCompensatorStream();
+            case LCC_CONVERTER_STATION -> network.getLccConverterStationStream();
+            case VSC_CONVERTER_STATION -> network.getVscConverterStationStream();
+            case HVDC_LINE -> network.getHvdcLineStream();
+            case DANGLING_LINE -> network.getDanglingLineStream();
+            case LINE -> network.getLineStream();
+            case TWO_WINDINGS_TRANSFORMER -> network.getTwoWindingsTransformerStream();
+            case THREE_WINDINGS_TRANSFORMER -> network.getThreeWindingsTransformerStream();
+            case BUSBAR_SECTION -> network.getBusbarSectionStream();
+            case VOLTAGE_LEVEL -> network.getVoltageLevelStream();
+            case SUBSTATION -> network.getSubstationStream();
+            default -> throw new IllegalArgumentException("Equipment type not indexed: " + equipmentType);
+        };
+    }
+
+    private Equipments getEquipments(EquipmentType equipmentType) {
+        return equipmentsByType.computeIfAbsent(equipmentType, type -> {
+            Equipments equipments = new Equipments();
+            getEquipmentStream(network, type).forEach(identifiable -> {
+                if (equipments.numbersById.putIfAbsent(identifiable.getId(), equipments.identifiables.size()) == null) {
+                    equipments.identifiables.add(identifiable);
+                }
+            });
+            return equipments;
+        });
+    }
+
+    /**
+     * @return the selected equipments, in the order of the network
+     */
+    public Stream<Identifiable<?>> getIdentifiableStream(EquipmentType equipmentType, BitSet selection) {
+        List<Identifiable<?>> identifiables = getEquipments(equipmentType).identifiables;
+        return selection.stream()
+                .takeWhile(number -> number < identifiables.size())
+                .mapToObj(identifiables::get);
+    }
+
+    /**
+     * @return the number of the equipment among the ones of its type, -1 if it is not indexed
+     */
+    public int getNumber(EquipmentType equipmentType, String id) {
+        Integer number = getEquipments(equipmentType).numbersById.get(id);
+        return number != null ? number : -1;
+    }
+
+    /**
+     * @return the equipments whose value of the numeric field is between the given bounds
+     */
+    public BitSet selectRange(EquipmentType equipmentType, FieldType field, double min, boolean minIncluded, double max, boolean maxIncluded) {
+        NumberIndex index = getNumberIndex(equipmentType, field);
+        BitSet selection = new BitSet();
+        for (int i = lowerBound(index.values(), min, minIncluded); i < index.values().length; i++) {
+            int comparison = Double.compare(index.values()[i], max);
+            if (comparison > 0 || comparison == 0 && !maxIncluded) {
+                break;
+            }
+            selection.set(index.numbers()[i]);
+        }
+        return selection;
+    }
+
+    // first position of a value after the given one, or equal to it if included
+    private static int lowerBound(double[] values, double value, boolean included) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = Double.compare(values[middle], value);
+            if (comparison < 0 || comparison == 0 && !included) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private NumberIndex getNumberIndex(EquipmentType equipmentType, FieldType field) {
+        Equipments equipments = getEquipments(equipmentType);
+        return (NumberIndex) fieldIndexes.computeIfAbsent(new FieldKey(equipmentType, field, null), key -> {
+            List<double[]> entries = new ArrayList<>();
+            getEquipmentStream(network, equipmentType).forEach(identifiable -> {
+                double value = NumberExpertRule.getNumberValue(ExpertFilterUtils.getFieldValue(field, null, identifiable));
+                Integer number = equipments.numbersById.get(identifiable.getId());
+                if (!Double.isNaN(value) && number != null) {
+                    entries.add(new double[] {value, number});
+                }
+            });
+            entries.sort((entry1, entry2) -> Double.compare(entry1[0], entry2[0]));
+            double[] values = new double[entries.size()];
+            int[] numbers = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                values[i] = entries.get(i)[0];
+                numbers[i] = (int) entries.get(i)[1];
+            }
+            return new NumberIndex(values, numbers);
+        });
+    }
+
+    /**
+     * @param propertyName the name of the property for a properties field, null otherwise
+     * @return the equipments whose value of the field is one of the given values, ignoring the case except for
+     * the enum fields
+     */
+    public BitSet selectValues(EquipmentType equipmentType, FieldType field, String propertyName, Collection<String> values) {
+        Map<String, BitSet> index = getValueIndex(equipmentType, field, propertyName).equipmentsByValue();
+        BitSet selection = new BitSet();
+        values.stream()
+                .filter(Objects::nonNull)
+                .map(index::get)
+                .filter(Objects::nonNull)
+                .forEach(selection::or);
+        return selection;
+    }
+
+    private ValueIndex getValueIndex(EquipmentType equipmentType, FieldType field, String propertyName) {
+        Equipments equipments = getEquipments(equipmentType);
+        return (ValueIndex) fieldIndexes.computeIfAbsent(new FieldKey(equipmentType, field, propertyName), key -> {
+            Map<String, BitSet> index = ENUM_FIELDS.contains(field) ? new HashMap<>() : new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            getEquipmentStream(network, equipmentType).forEach(identifiable -> {
+                String value = ExpertFilterUtils.getFieldValue(field, propertyName, identifiable);
+                Integer number = equipments.numbersById.get(identifiable.getId());
+                if (value != null && number != null) {
+                    index.computeIfAbsent(value, v -> new BitSet()).set(number);
+                }
+            });
+            return new ValueIndex(index);
+        });
+    }
+
+    /**
+     * @return the number of fields indexed, for all the types of equipments
+     */
+    public int size() {
+        return fieldIndexes.size();
+    }
+}
@@ -12,8 +12,12 @@ package org.gridsuite.filter.server;
  */
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
+import org.apache.commons.collections4.ListUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,6 +25,8 @@ import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 public class NotificationService {
@@ -31,6 +37,12 @@ public class NotificationService {
     public static final String HEADER_MODIFIED_BY = "modifiedBy";
     public static final String HEADER_MODIFICATION_DATE = "modificationDate";
     public static final String HEADER_ELEMENT_UUID = "elementUuid";
+    public static final String HEADER_NETWORK_UUID = "networkUuid";
+
+    /**
+     * Number of filter ids sent in one invalidation message, about 37 bytes each
+     */
+    public static final int INVALIDATED_FILTERS_CHUNK_SIZE = 1000;
 
     @Autowired
     private StreamBridge updatePublisher;
@@ -40,6 +52,45 @@ public class NotificationService {
         updatePublisher.send("publishElementUpdate-out-0", message);
     }
 
+    /**
+     * Tell every instance of the server, this one included, to drop the given filters from their {@link FilterCache}.
+     * The ids are sent comma separated in the payload of messages of bounded size, once the current transaction is
+     * committed: the other instances would otherwise reload and cache again the filters before their modification.
+     */
+    public void emitFiltersInvalidated(Collection<UUID> filterUuids) {
+        List<List<UUID>> filterUuidsChunks = ListUtils.partition(List.copyOf(filterUuids), INVALIDATED_FILTERS_CHUNK_SIZE);
+        afterCommit(() -> filterUuidsChunks.forEach(chunk -> {
+            Message<String> message = MessageBuilder.withPayload(chunk.stream().map(UUID::toString).collect(Collectors.joining(",")))
+                    .build();
+            MESSAGE_OUTPUT_LOGGER.debug("Sending message : {}", message);
+            updatePublisher.send("publishFilterInvalidation-out-0", message);
+        }));
+    }
+
+    private static void afterCommit(Runnable runnable) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    runnable.run();
+                }
+            });
+        } else {
+            runnable.run();
+        }
+    }
+
+    /**
+     * Tell every instance of the server, this one included, to drop the given network from their {@link NetworkCache}
+     */
+    public void emitNetworkInvalidated(UUID networkUuid) {
+        Message<String> message = MessageBuilder.withPayload("")
+                .setHeader(HEADER_NETWORK_UUID, networkUuid.toString())
+                .build();
+        MESSAGE_OUTPUT_LOGGER.debug("Sending message : {}", message);
+        updatePublisher.send("publishFilterInvalidation-out-0", message);
+    }
+
     public void emitElementUpdated(UUID elementUuid, String modifiedBy) {
         sendElementUpdateMessage(MessageBuilder.withPayload("")
                 .setHeader(HEADER_ELEMENT_UUID, elementUuid)
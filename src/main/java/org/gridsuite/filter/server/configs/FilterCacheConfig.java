@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.configs;
+
+import org.gridsuite.filter.server.EvaluationCache;
+import org.gridsuite.filter.server.ExpertFilterPlanCache;
+import org.gridsuite.filter.server.FilterCache;
+import org.gridsuite.filter.server.NetworkCache;
+import org.gridsuite.filter.server.NotificationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Every instance of the server listens to the invalidations sent by {@link NotificationService#emitFiltersInvalidated}
+ * and {@link NotificationService#emitNetworkInvalidated} on its own anonymous queue, so that each of them drops the
+ * modified filters from its {@link FilterCache} and {@link ExpertFilterPlanCache} and the modified networks from its
+ * {@link NetworkCache}, along with the evaluations depending on them from its {@link EvaluationCache}.
+ *
+ * @author agent <agent at local>
+ */
+@Configuration
+public class FilterCacheConfig {
+    @Bean
+    public Consumer<Message<String>> consumeFilterInvalidation(FilterCache filterCache, ExpertFilterPlanCache planCache, NetworkCache networkCache,
+                                                               EvaluationCache evaluationCache) {
+        return message -> {
+            // the filters ids are in the payload, the network one in a header
+            String filterUuids = message.getPayload();
+            if (filterUuids != null && !filterUuids.isEmpty()) {
+                List<UUID> filterIds = Arrays.stream(filterUuids.split(",")).map(UUID::fromString).toList();
+                filterCache.invalidateAll(filterIds);
+                planCache.invalidateAll(filterIds);
+                evaluationCache.invalidateFilters(filterIds);
+            }
+            String networkUuid = message.getHeaders().get(NotificationService.HEADER_NETWORK_UUID, String.class);
+            if (networkUuid != null) {
+                networkCache.invalidate(UUID.fromString(networkUuid));
+                evaluationCache.invalidateNetwork(UUID.fromString(networkUuid));
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.configs;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Threads evaluating the filters of the multi-filter requests, shared by all the requests so that the number of
+ * evaluations running at the same time on an instance of the server is bounded by the configured parallelism.
+ * <p>
+ * Each task leases its own instance of the network, and the tasks beyond the first one only run on the free cached
+ * instances: the threads are only created when the network cache keeps several instances of a network, the
+ * evaluations are sequential otherwise.
+ *
+ * @author agent <agent at local>
+ */
+@Configuration
+public class FilterEvaluationConfig {
+    public static final String FILTER_EVALUATION_EXECUTOR = "filterEvaluationExecutor";
+
+    @Bean(name = FILTER_EVALUATION_EXECUTOR, destroyMethod = "shutdown")
+    @ConditionalOnExpression("${filter.evaluation.parallelism:4} > 1 and ${filter.network-cache.max-size:0} > 0"
+            + " and ${filter.network-cache.max-instances-per-network:1} > 1")
+    public ExecutorService filterEvaluationExecutor(@Value("${filter.evaluation.parallelism:4}") int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("filter-evaluation-"));
+    }
+}
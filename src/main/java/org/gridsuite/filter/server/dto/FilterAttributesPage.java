@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.gridsuite.filter.IFilterAttributes;
+
+import java.util.List;
+
+/**
+ * A page of filters attributes, ordered by modification date then id
+ *
+ * @author agent <agent at local>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilterAttributesPage {
+    List<IFilterAttributes> filters;
+
+    /**
+     * To pass as the "after" parameter to get the next page, null on the last page
+     */
+    String nextCursor;
+}
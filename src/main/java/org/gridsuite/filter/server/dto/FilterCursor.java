@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.dto;
+
+import lombok.Value;
+import org.gridsuite.filter.IFilterAttributes;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Key of a filter in the listing order, the pages starting right after it.
+ * Written as the modification date in milliseconds and the id, separated by an underscore.
+ *
+ * @author agent <agent at local>
+ */
+@Value
+public class FilterCursor {
+    /**
+     * The order of the listing. The ids are compared as the databases compare them, as unsigned bytes, which is the
+     * order of their text form and not the one of {@link UUID#compareTo}.
+     */
+    public static final Comparator<IFilterAttributes> ORDER = Comparator.comparing(IFilterAttributes::getModificationDate)
+            .thenComparing(filterAttributes -> filterAttributes.getId().toString());
+
+    Date modificationDate;
+    UUID id;
+
+    public static FilterCursor of(IFilterAttributes filterAttributes) {
+        return new FilterCursor(filterAttributes.getModificationDate(), filterAttributes.getId());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static FilterCursor parse(String cursor) {
+        int separatorIndex = cursor.indexOf('_');
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException("Malformed filter cursor " + cursor);
+        }
+        return new FilterCursor(new Date(Long.parseLong(cursor.substring(0, separatorIndex))),
+                UUID.fromString(cursor.substring(separatorIndex + 1)));
+    }
+
+    @Override
+    public String toString() {
+        return modificationDate.getTime() + "_" + id;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.gridsuite.filter.identifierlistfilter.IdentifierListFilterEquipmentAttributes;
+
+import java.util.List;
+
+/**
+ * Changes to apply to the equipments of an identifier list filter. The removals are applied first, then the
+ * equipments already in the list get their distribution key changed and the others are appended.
+ *
+ * @author agent <agent at local>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdentifierListFilterPatch {
+    @Builder.Default
+    private List<IdentifierListFilterEquipmentAttributes> addedOrUpdatedEquipments = List.of();
+
+    @Builder.Default
+    private List<String> removedEquipmentIds = List.of();
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.gridsuite.filter.utils.FilterType;
+
+import java.util.UUID;
+
+/**
+ * Associates every stored filter id with the type of the table holding it,
+ * so that a filter can be routed to its repository without probing them all.
+ *
+ * @author agent <agent at local>
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "filter_type_registry")
+public class FilterTypeRegistryEntity {
+
+    @Id
+    @Column(name = "id")
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "filterType")
+    private FilterType filterType;
+}
@@ -11,14 +11,20 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.gridsuite.filter.server.entities.AbstractFilterEntity;
 import org.gridsuite.filter.utils.EquipmentType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.util.UUID;
 
 /**
  * @author Antoine Bouhours <antoine.bouhours at rte-france.com>
  */
 @Getter
+@Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @SuperBuilder
@@ -37,4 +43,17 @@ public class ExpertFilterEntity extends AbstractFilterEntity {
                     name = "expertRule_rules_fk"
             ))
     private ExpertRuleEntity rules;
+
+    /**
+     * Replaces the rules when the filter is saved in the document storage mode
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "rulesDocument")
+    private ExpertRulesDocument rulesDocument;
+
+    /**
+     * Id of the filter owning the rules of this one, set on duplicates until they are modified for the first time
+     */
+    @Column(name = "sharedBodyId")
+    private UUID sharedBodyId;
 }
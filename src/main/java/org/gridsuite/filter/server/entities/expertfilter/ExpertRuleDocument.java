@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.entities.expertfilter;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.gridsuite.filter.utils.expertfilter.CombinatorType;
+import org.gridsuite.filter.utils.expertfilter.DataType;
+import org.gridsuite.filter.utils.expertfilter.FieldType;
+import org.gridsuite.filter.utils.expertfilter.OperatorType;
+
+import java.util.List;
+
+/**
+ * A node of an {@link ExpertRulesDocument}, holding the same data as an {@link ExpertRuleEntity} and its subclasses
+ *
+ * @author agent <agent at local>
+ */
+@Getter
+@Setter
+@Builder
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExpertRuleDocument {
+    private DataType dataType;
+
+    private CombinatorType combinator;
+
+    private FieldType field;
+
+    private OperatorType operator;
+
+    private String value;
+
+    private String propertyName;
+
+    private List<String> propertyValues;
+
+    private List<ExpertRuleDocument> rules;
+}
@@ -11,6 +11,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.gridsuite.filter.utils.expertfilter.CombinatorType;
 import org.gridsuite.filter.utils.expertfilter.DataType;
@@ -24,6 +25,7 @@ import java.util.UUID;
  * @author Antoine Bouhours <antoine.bouhours at rte-france.com>
  */
 @Getter
+@Setter
 @NoArgsConstructor
 @SuperBuilder
 @AllArgsConstructor
@@ -51,7 +53,8 @@ public class ExpertRuleEntity {
     @Column(name = "dataType")
     private DataType dataType;
 
-    @OneToMany(cascade = CascadeType.ALL, mappedBy = "parentRule")
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, mappedBy = "parentRule")
+    @OrderColumn(name = "pos")
     private List<ExpertRuleEntity> rules;
 
     @ManyToOne
@@ -0,0 +1,35 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.entities.expertfilter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Whole rule tree of an expert filter, stored as a single JSON document in the expert_filter table instead of the
+ * expert_rule tables. The version must be increased on each incompatible change of the format.
+ *
+ * @author agent <agent at local>
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExpertRulesDocument {
+    public static final int CURRENT_VERSION = 1;
+
+    private int version;
+
+    private ExpertRuleDocument rules;
+
+    public ExpertRulesDocument(ExpertRuleDocument rules) {
+        this(CURRENT_VERSION, rules);
+    }
+}
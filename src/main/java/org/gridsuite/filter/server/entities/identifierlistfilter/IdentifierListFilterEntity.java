@@ -11,17 +11,22 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 import org.gridsuite.filter.server.entities.AbstractFilterEntity;
 import org.gridsuite.filter.utils.EquipmentType;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Seddik Yengui <seddik.yengui at rte-france.com>
  */
 
 @Getter
+@Setter
 @NoArgsConstructor
 @SuperBuilder
 @AllArgsConstructor
@@ -35,4 +40,22 @@ public class IdentifierListFilterEntity extends AbstractFilterEntity {
 
     @OneToMany(cascade = CascadeType.ALL)
     private List<IdentifierListFilterEquipmentEntity> filterEquipmentEntityList;
+
+    /**
+     * Replace the equipment list when the filter is saved in the arrays storage mode, both arrays having the same
+     * length
+     */
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "equipmentIds")
+    private String[] equipmentIds;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "distributionKeys")
+    private Double[] distributionKeys;
+
+    /**
+     * Id of the filter owning the equipments of this one, set on duplicates until they are modified for the first time
+     */
+    @Column(name = "sharedBodyId")
+    private UUID sharedBodyId;
 }
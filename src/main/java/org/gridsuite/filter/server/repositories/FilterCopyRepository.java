@@ -0,0 +1,40 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Repository fragment copying filters inside the database, without loading the source entities nor converting them
+ * back and forth to DTOs.
+ * <p>
+ * The filter types having a large body (rule tree, equipment list) copy it on write: a copy only points to the filter
+ * owning the body, and the body is handed over to one of its copies before its owner is modified or deleted. A body
+ * having copies is thus never modified.
+ * <p>
+ * Each filter type implements it in its own fragment, that the concrete repository must extend directly.
+ *
+ * @author agent <agent at local>
+ */
+public interface FilterCopyRepository {
+
+    /**
+     * @param newIdsBySourceId the id to give to the copy of each source filter
+     * @param modificationDate the modification date of the copies
+     */
+    void copyAll(Map<UUID, UUID> newIdsBySourceId, Date modificationDate);
+
+    /**
+     * Hand the bodies owned by the given filters over to one of their other copies, to be called before the given
+     * filters are modified or deleted
+     */
+    void releaseSharedBodies(Collection<UUID> ids);
+}
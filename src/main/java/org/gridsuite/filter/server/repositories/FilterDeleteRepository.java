@@ -0,0 +1,28 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository fragment deleting filters and the rows depending on them with set-based statements, where the derived
+ * deletes load every entity and its whole body to delete them row by row through the cascades.
+ * <p>
+ * Each filter type implements it in its own fragment, that the concrete repository must extend directly.
+ *
+ * @author agent <agent at local>
+ */
+public interface FilterDeleteRepository {
+
+    /**
+     * @return the ids of the filters which existed and have been deleted
+     */
+    List<UUID> deleteAllInBulk(Collection<UUID> ids);
+}
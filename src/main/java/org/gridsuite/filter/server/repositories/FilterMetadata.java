@@ -14,4 +14,9 @@ public interface FilterMetadata {
     java.util.UUID getId();
 
     java.util.Date getModificationDate();
+
+    /**
+     * Only selected by the repositories of the filters having an equipment type
+     */
+    org.gridsuite.filter.utils.EquipmentType getEquipmentType();
 }
@@ -8,19 +8,25 @@
 package org.gridsuite.filter.server.repositories;
 
 import org.gridsuite.filter.server.entities.AbstractFilterEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.NoRepositoryBean;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
 /**
+ * The concrete repositories must extend {@link PersistRepository}, or a fragment of their own refining it, and their own
+ * {@link FilterCopyRepository} and {@link FilterDeleteRepository} fragments themselves too, for their implementations to be found.
+ *
  * @author Jacques Borsenberger <jacques.borsenberger at rte-france.com>
  */
 @NoRepositoryBean
-public interface FilterRepository<T extends AbstractFilterEntity> extends JpaRepository<T, UUID> {
+public interface FilterRepository<T extends AbstractFilterEntity> extends JpaRepository<T, UUID>, PersistRepository<T>, FilterCopyRepository,
+    FilterDeleteRepository {
 
     @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate from #{#entityName} as t")
     List<FilterMetadata> getFiltersMetadata();
@@ -28,6 +34,19 @@ public interface FilterRepository<T extends AbstractFilterEntity> extends JpaRep
     @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate from #{#entityName} as t WHERE t.id in (:ids)")
     List<FilterMetadata> findFiltersMetaDataById(List<UUID> ids);
 
+    /**
+     * First page of the metadata, in the (modificationDate, id) order the pages are read in
+     */
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate from #{#entityName} as t ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadata(Limit limit);
+
+    /**
+     * Next page of the metadata, starting right after the given (modificationDate, id) key
+     */
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate from #{#entityName} as t "
+        + "WHERE t.modificationDate > :modificationDate OR (t.modificationDate = :modificationDate AND t.id > :id) ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadataAfter(Date modificationDate, UUID id, Limit limit);
+
     @Transactional
     Integer removeById(UUID id);
 
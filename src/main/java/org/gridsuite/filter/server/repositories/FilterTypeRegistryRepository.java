@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) 2026, RTE (http://www.rte-france.com)
+ * This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+package org.gridsuite.filter.server.repositories;
+
+import org.gridsuite.filter.server.entities.FilterTypeRegistryEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Persisted side of the {@link org.gridsuite.filter.server.FilterTypeRegistry}.
+ *
+ * @author agent <agent at local>
+ */
+@Repository
+public interface FilterTypeRegistryRepository extends JpaRepository<FilterTypeRegistryEntity, UUID>, PersistRepository<FilterTypeRegistryEntity> {
+
+    @Modifying
+    @Query(value = "DELETE FROM FilterTypeRegistryEntity r WHERE r.id IN (:ids)")
+    int deleteAllByIdIn(Collection<UUID> ids);
+}
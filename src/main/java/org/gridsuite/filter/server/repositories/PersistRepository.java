@@ -0,0 +1,23 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories;
+
+import java.util.List;
+
+/**
+ * Repository fragment inserting new entities with persist.
+ * <p>
+ * {@code save} merges the entities having an assigned id, which costs a SELECT per entity and per cascaded child
+ * before it is inserted. Entities known to be new, like the ones of a bulk creation or a duplication, skip it this
+ * way and are inserted in JDBC batches.
+ *
+ * @author agent <agent at local>
+ */
+public interface PersistRepository<T> {
+    <S extends T> List<S> persistAll(Iterable<S> entities);
+}
@@ -0,0 +1,35 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author agent <agent at local>
+ */
+public class PersistRepositoryImpl<T> implements PersistRepository<T> {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public <S extends T> List<S> persistAll(Iterable<S> entities) {
+        List<S> persistedEntities = new ArrayList<>();
+        for (S entity : entities) {
+            entityManager.persist(entity);
+            persistedEntities.add(entity);
+        }
+        return persistedEntities;
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import org.gridsuite.filter.server.repositories.FilterCopyRepository;
+
+/**
+ * @author agent <agent at local>
+ */
+public interface ExpertFilterCopyRepository extends FilterCopyRepository {
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * @author agent <agent at local>
+ */
+public class ExpertFilterCopyRepositoryImpl implements ExpertFilterCopyRepository {
+
+    private static final String COPY_FILTER = """
+            INSERT INTO expert_filter (id, modification_date, equipment_type, shared_body_id)
+            SELECT ?, ?, equipment_type, COALESCE(shared_body_id, id) FROM expert_filter WHERE id = ?
+            """;
+
+    private static final String SELECT_BODIES = "SELECT id, COALESCE(shared_body_id, id) AS body_id FROM expert_filter WHERE id IN (:ids)";
+
+    private static final String LOCK_FILTERS = "SELECT id FROM expert_filter WHERE id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String LOCK_COPIES = "SELECT id FROM expert_filter WHERE shared_body_id IN (:ids) ORDER BY id FOR UPDATE";
+
+    private static final String SELECT_HEIRS = """
+            SELECT f.id, f.shared_body_id, o.rules_id
+            FROM expert_filter f
+            JOIN expert_filter o ON o.id = f.shared_body_id
+            WHERE f.shared_body_id IN (:ids) AND f.id NOT IN (:ids)
+            """;
+
+    private static final String SHARE_HEIR_BODY = "UPDATE expert_filter SET shared_body_id = ? WHERE shared_body_id = ?";
+
+    private static final String TAKE_RULES_DOCUMENT = """
+            UPDATE expert_filter
+            SET rules_document = (SELECT o.rules_document FROM expert_filter o WHERE o.id = ?), shared_body_id = NULL
+            WHERE id = ?
+            """;
+
+    private static final String CLEAR_RULES = "UPDATE expert_filter SET rules_id = NULL, rules_document = NULL WHERE id = ?";
+
+    private static final String TAKE_RULES = "UPDATE expert_filter SET rules_id = ? WHERE id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExpertFilterCopyRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void copyAll(Map<UUID, UUID> newIdsBySourceId, Date modificationDate) {
+        // the sources may have been written in the same transaction
+        entityManager.flush();
+        lockBodies(newIdsBySourceId.keySet());
+        Timestamp timestamp = new Timestamp(modificationDate.getTime());
+        // a copy of a copy shares the rules of the original
+        jdbcTemplate.getJdbcOperations().batchUpdate(COPY_FILTER, newIdsBySourceId.entrySet().stream()
+                .map(ids -> new Object[] {ids.getValue(), timestamp, ids.getKey()})
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    public void releaseSharedBodies(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        entityManager.flush();
+        // the owners first, as the copies lock the bodies they share, then their copies, which may be updated
+        jdbcTemplate.queryForList(LOCK_FILTERS, Map.of("ids", ids), UUID.class);
+        List<UUID> copyIds = jdbcTemplate.queryForList(LOCK_COPIES, Map.of("ids", ids), UUID.class);
+        Map<UUID, UUID> heirsByOwnerId = new HashMap<>();
+        Map<UUID, UUID> rulesIdsByOwnerId = new HashMap<>();
+        jdbcTemplate.query(SELECT_HEIRS, Map.of("ids", ids), rs -> {
+            UUID ownerId = rs.getObject("shared_body_id", UUID.class);
+            heirsByOwnerId.putIfAbsent(ownerId, rs.getObject("id", UUID.class));
+            UUID rulesId = rs.getObject("rules_id", UUID.class);
+            if (rulesId != null) {
+                rulesIdsByOwnerId.put(ownerId, rulesId);
+            }
+        });
+        if (heirsByOwnerId.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> sharings = new ArrayList<>();
+        List<Object[]> documentTransfers = new ArrayList<>();
+        List<Object[]> owners = new ArrayList<>();
+        List<Object[]> rulesTransfers = new ArrayList<>();
+        heirsByOwnerId.forEach((ownerId, heirId) -> {
+            sharings.add(new Object[] {heirId, ownerId});
+            documentTransfers.add(new Object[] {ownerId, heirId});
+            owners.add(new Object[] {ownerId});
+            if (rulesIdsByOwnerId.containsKey(ownerId)) {
+                rulesTransfers.add(new Object[] {rulesIdsByOwnerId.get(ownerId), heirId});
+            }
+        });
+        // the other copies now share the body of the heir, which owns it
+        jdbcTemplate.getJdbcOperations().batchUpdate(SHARE_HEIR_BODY, sharings);
+        jdbcTemplate.getJdbcOperations().batchUpdate(TAKE_RULES_DOCUMENT, documentTransfers);
+        // the rules reference is unique, the owner has to let it go first
+        jdbcTemplate.getJdbcOperations().batchUpdate(CLEAR_RULES, owners);
+        jdbcTemplate.getJdbcOperations().batchUpdate(TAKE_RULES, rulesTransfers);
+        // the loaded entities do not know about the transfers
+        Stream.concat(ids.stream(), copyIds.stream())
+                .forEach(id -> entityManager.detach(entityManager.getReference(ExpertFilterEntity.class, id)));
+    }
+
+    /**
+     * Lock the bodies shared by the given filters, so that their owners can not hand them over to a copy until the
+     * transaction ends. The filters sharing a body can only change under the lock of its owner.
+     */
+    private void lockBodies(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<UUID, UUID> bodyIdsById = getBodyIds(ids);
+        Map<UUID, UUID> lockedBodyIdsById;
+        do {
+            lockedBodyIdsById = bodyIdsById;
+            jdbcTemplate.queryForList(LOCK_FILTERS, Map.of("ids", new HashSet<>(lockedBodyIdsById.values())), UUID.class);
+            // a body handed over before being locked is locked again with its new owner
+            bodyIdsById = getBodyIds(ids);
+        } while (!bodyIdsById.equals(lockedBodyIdsById));
+    }
+
+    private Map<UUID, UUID> getBodyIds(Collection<UUID> ids) {
+        Map<UUID, UUID> bodyIdsById = new HashMap<>();
+        jdbcTemplate.query(SELECT_BODIES, Map.of("ids", ids), rs -> {
+            bodyIdsById.put(rs.getObject("id", UUID.class), rs.getObject("body_id", UUID.class));
+        });
+        return bodyIdsById;
+    }
+}
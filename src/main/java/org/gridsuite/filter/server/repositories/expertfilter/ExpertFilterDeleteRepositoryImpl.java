@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.commons.collections4.ListUtils;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @author agent <agent at local>
+ */
+public class ExpertFilterDeleteRepositoryImpl implements ExpertFilterDeleteRepository {
+
+    private static final int IDS_CHUNK_SIZE = 1000;
+
+    private static final String SELECT_FILTERS = "SELECT id FROM expert_filter WHERE id IN (:ids)";
+
+    private static final String SELECT_RULES = """
+            WITH RECURSIVE rule_tree(rule_id) AS (
+                SELECT f.rules_id FROM expert_filter f WHERE f.id IN (:ids) AND f.rules_id IS NOT NULL
+                UNION ALL
+                SELECT r.id FROM expert_rule r JOIN rule_tree t ON r.parent_rule_id = t.rule_id
+            )
+            SELECT rule_id FROM rule_tree
+            """;
+
+    private static final String DELETE_FILTERS = "DELETE FROM expert_filter WHERE id IN (:ids)";
+
+    private static final String DETACH_RULES = "UPDATE expert_rule SET parent_rule_id = NULL WHERE id IN (:ids)";
+
+    private static final List<String> DELETE_RULES = List.of(
+            "DELETE FROM expert_rule_property_value WHERE expert_rule_properties_entity_id IN (:ids)",
+            "DELETE FROM expert_rule_properties WHERE id IN (:ids)",
+            "DELETE FROM expert_rule_value WHERE id IN (:ids)",
+            "DELETE FROM expert_rule WHERE id IN (:ids)");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExpertFilterDeleteRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public List<UUID> deleteAllInBulk(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        List<List<UUID>> idsChunks = ListUtils.partition(List.copyOf(ids), IDS_CHUNK_SIZE);
+        List<UUID> deletedIds = new ArrayList<>();
+        List<UUID> ruleIds = new ArrayList<>();
+        idsChunks.forEach(chunk -> {
+            deletedIds.addAll(jdbcTemplate.queryForList(SELECT_FILTERS, Map.of("ids", chunk), UUID.class));
+            ruleIds.addAll(jdbcTemplate.queryForList(SELECT_RULES, Map.of("ids", chunk), UUID.class));
+        });
+        // the filters reference their root rule
+        idsChunks.forEach(chunk -> jdbcTemplate.update(DELETE_FILTERS, Map.of("ids", chunk)));
+        // the rules of a chunk may reference rules of another one
+        List<List<UUID>> ruleIdsChunks = ListUtils.partition(ruleIds, IDS_CHUNK_SIZE);
+        ruleIdsChunks.forEach(chunk -> jdbcTemplate.update(DETACH_RULES, Map.of("ids", chunk)));
+        DELETE_RULES.forEach(deleteRules -> ruleIdsChunks.forEach(chunk -> jdbcTemplate.update(deleteRules, Map.of("ids", chunk))));
+        // the loaded filters, and their rules, would be deleted again on flush
+        deletedIds.forEach(id -> entityManager.detach(entityManager.getReference(ExpertFilterEntity.class, id)));
+        return deletedIds;
+    }
+}
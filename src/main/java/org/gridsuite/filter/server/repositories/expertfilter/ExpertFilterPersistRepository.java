@@ -0,0 +1,23 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.gridsuite.filter.server.repositories.PersistRepository;
+
+/**
+ * Persists the expert filters with their rule trees inserted level by level.
+ * <p>
+ * A rule references its parent rule, so the inserts of nested rules depend on other inserts into the same tables and
+ * can not be ordered by table when the whole trees are flushed at once: they would then be executed in the order of
+ * the trees, in as many batches as there are switches between tables.
+ *
+ * @author agent <agent at local>
+ */
+public interface ExpertFilterPersistRepository extends PersistRepository<ExpertFilterEntity> {
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertRuleEntity;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * @author agent <agent at local>
+ */
+public class ExpertFilterPersistRepositoryImpl implements ExpertFilterPersistRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public <S extends ExpertFilterEntity> List<S> persistAll(Iterable<S> entities) {
+        List<S> persistedEntities = new ArrayList<>();
+        entities.forEach(persistedEntities::add);
+        // the filters with their root rule first, then each level of the trees in its own flush, whose inserts only
+        // reference rows already inserted and can be sorted by table
+        Map<ExpertRuleEntity, List<ExpertRuleEntity>> childrenByParent = takeChildren(persistedEntities.stream()
+                .map(ExpertFilterEntity::getRules)
+                .filter(Objects::nonNull)
+                .toList());
+        persistedEntities.forEach(entityManager::persist);
+        entityManager.flush();
+        while (!childrenByParent.isEmpty()) {
+            Map<ExpertRuleEntity, List<ExpertRuleEntity>> levelChildrenByParent = childrenByParent;
+            childrenByParent = takeChildren(levelChildrenByParent.values().stream().flatMap(Collection::stream).toList());
+            levelChildrenByParent.forEach((parent, children) -> {
+                parent.getRules().addAll(children);
+                children.forEach(entityManager::persist);
+            });
+            entityManager.flush();
+        }
+        return persistedEntities;
+    }
+
+    /**
+     * Detach the children of the given rules, to be persisted with the next level
+     */
+    private static Map<ExpertRuleEntity, List<ExpertRuleEntity>> takeChildren(List<ExpertRuleEntity> rules) {
+        Map<ExpertRuleEntity, List<ExpertRuleEntity>> childrenByParent = new LinkedHashMap<>();
+        rules.forEach(rule -> {
+            if (rule.getRules() != null && !rule.getRules().isEmpty()) {
+                childrenByParent.put(rule, rule.getRules());
+                rule.setRules(new ArrayList<>());
+            }
+        });
+        return childrenByParent;
+    }
+}
@@ -7,13 +7,62 @@
 package org.gridsuite.filter.server.repositories.expertfilter;
 
 import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.gridsuite.filter.server.repositories.FilterMetadata;
 import org.gridsuite.filter.server.repositories.FilterRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Antoine Bouhours <antoine.bouhours at rte-france.com>
  */
 @Repository
-public interface ExpertFilterRepository extends FilterRepository<ExpertFilterEntity> {
+public interface ExpertFilterRepository extends FilterRepository<ExpertFilterEntity>, ExpertFilterPersistRepository, ExpertFilterCopyRepository,
+    ExpertFilterDeleteRepository {
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t")
+    List<FilterMetadata> getFiltersMetadata();
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t WHERE t.id in (:ids)")
+    List<FilterMetadata> findFiltersMetaDataById(List<UUID> ids);
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadata(Limit limit);
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t "
+        + "WHERE t.modificationDate > :modificationDate OR (t.modificationDate = :modificationDate AND t.id > :id) ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadataAfter(Date modificationDate, UUID id, Limit limit);
+
+    /**
+     * Load the whole rule trees of the given filters in a single round-trip, instead of walking them node by node
+     * through the lazy associations. Sibling rules come in their order, and rows of properties rules in the order of
+     * their values.
+     * Ids are returned as text as the drivers do not agree on how to return a native UUID column.
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE rule_tree(filter_id, rule_id) AS (
+                SELECT f.id, f.rules_id FROM expert_filter f WHERE f.id IN (:filterIds)
+                UNION ALL
+                SELECT t.filter_id, r.id FROM expert_rule r JOIN rule_tree t ON r.parent_rule_id = t.rule_id
+            )
+            SELECT CAST(t.filter_id AS VARCHAR) AS filterId, CAST(r.id AS VARCHAR) AS id, CAST(r.parent_rule_id AS VARCHAR) AS parentRuleId,
+                   r.combinator AS combinator, r.field AS field, r.operator AS operator, r.data_type AS dataType,
+                   v.value_ AS ruleValue, p.property_name AS propertyName, pv.property_values AS propertyValue
+            FROM rule_tree t
+            JOIN expert_rule r ON r.id = t.rule_id
+            LEFT JOIN expert_rule_value v ON v.id = r.id
+            LEFT JOIN expert_rule_properties p ON p.id = r.id
+            LEFT JOIN expert_rule_property_value pv ON pv.expert_rule_properties_entity_id = p.id
+            ORDER BY t.filter_id, r.pos, r.id, pv.pos
+            """)
+    List<ExpertRuleRow> findRuleTreesByFilterIdIn(Collection<UUID> filterIds);
 }
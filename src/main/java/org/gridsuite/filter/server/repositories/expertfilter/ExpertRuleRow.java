@@ -0,0 +1,38 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.expertfilter;
+
+import java.util.UUID;
+
+/**
+ * One row of a flattened expert rule tree, as returned by {@link ExpertFilterRepository#findRuleTreesByFilterIdIn}.
+ * A properties rule spans one row per property value, the others exactly one row.
+ *
+ * @author agent <agent at local>
+ */
+public interface ExpertRuleRow {
+    UUID getFilterId();
+
+    UUID getId();
+
+    UUID getParentRuleId();
+
+    String getCombinator();
+
+    String getField();
+
+    String getOperator();
+
+    String getDataType();
+
+    String getRuleValue();
+
+    String getPropertyName();
+
+    String getPropertyValue();
+}
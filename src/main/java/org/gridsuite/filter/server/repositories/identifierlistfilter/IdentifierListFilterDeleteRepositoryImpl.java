@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.identifierlistfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.apache.commons.collections4.ListUtils;
+import org.gridsuite.filter.server.entities.identifierlistfilter.IdentifierListFilterEntity;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @author agent <agent at local>
+ */
+public class IdentifierListFilterDeleteRepositoryImpl implements IdentifierListFilterDeleteRepository {
+
+    private static final int IDS_CHUNK_SIZE = 1000;
+
+    private static final String SELECT_FILTERS = "SELECT id FROM identifier_list_filter WHERE id IN (:ids)";
+
+    private static final String SELECT_EQUIPMENTS = """
+            SELECT filter_equipment_entity_list_id FROM identifier_list_filter_filter_equipment_entity_list
+            WHERE identifier_list_filter_entity_id IN (:ids)
+            """;
+
+    private static final String DELETE_FILTER_EQUIPMENTS = "DELETE FROM identifier_list_filter_filter_equipment_entity_list WHERE identifier_list_filter_entity_id IN (:ids)";
+
+    private static final String DELETE_EQUIPMENTS = "DELETE FROM identifier_list_filter_equipment WHERE id IN (:ids)";
+
+    private static final String DELETE_FILTERS = "DELETE FROM identifier_list_filter WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public IdentifierListFilterDeleteRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public List<UUID> deleteAllInBulk(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        List<List<UUID>> idsChunks = ListUtils.partition(List.copyOf(ids), IDS_CHUNK_SIZE);
+        List<UUID> deletedIds = new ArrayList<>();
+        List<UUID> equipmentIds = new ArrayList<>();
+        // the join table references the equipments, their ids are read before it is cleared
+        idsChunks.forEach(chunk -> {
+            deletedIds.addAll(jdbcTemplate.queryForList(SELECT_FILTERS, Map.of("ids", chunk), UUID.class));
+            equipmentIds.addAll(jdbcTemplate.queryForList(SELECT_EQUIPMENTS, Map.of("ids", chunk), UUID.class));
+        });
+        idsChunks.forEach(chunk -> jdbcTemplate.update(DELETE_FILTER_EQUIPMENTS, Map.of("ids", chunk)));
+        ListUtils.partition(equipmentIds, IDS_CHUNK_SIZE)
+                .forEach(chunk -> jdbcTemplate.update(DELETE_EQUIPMENTS, Map.of("ids", chunk)));
+        idsChunks.forEach(chunk -> jdbcTemplate.update(DELETE_FILTERS, Map.of("ids", chunk)));
+        // the loaded filters, and their equipments, would be deleted again on flush
+        deletedIds.forEach(id -> entityManager.detach(entityManager.getReference(IdentifierListFilterEntity.class, id)));
+        return deletedIds;
+    }
+}
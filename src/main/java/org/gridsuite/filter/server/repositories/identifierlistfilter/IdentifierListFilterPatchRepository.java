@@ -0,0 +1,24 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.identifierlistfilter;
+
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Repository fragment patching the equipments of an identifier list filter stored in tables, touching only the rows
+ * of the given equipments. Hibernate would rewrite the whole join table of the unordered equipment list instead.
+ * The filter is detached from the persistence context afterwards, without its pending changes being flushed.
+ *
+ * @author agent <agent at local>
+ */
+public interface IdentifierListFilterPatchRepository {
+    void patchEquipments(UUID filterId, IdentifierListFilterPatch patch, Date modificationDate);
+}
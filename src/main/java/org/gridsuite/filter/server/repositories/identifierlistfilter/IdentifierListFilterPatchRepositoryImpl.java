@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.identifierlistfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
+import org.gridsuite.filter.server.entities.identifierlistfilter.IdentifierListFilterEntity;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * @author agent <agent at local>
+ */
+public class IdentifierListFilterPatchRepositoryImpl implements IdentifierListFilterPatchRepository {
+
+    private static final String SELECT_EQUIPMENTS = """
+            SELECT e.id, e.equipment_id, e.distribution_key
+            FROM identifier_list_filter_filter_equipment_entity_list l
+            JOIN identifier_list_filter_equipment e ON e.id = l.filter_equipment_entity_list_id
+            WHERE l.identifier_list_filter_entity_id = :filterId AND e.equipment_id IN (:equipmentIds)
+            """;
+
+    private static final String DELETE_FILTER_EQUIPMENT = """
+            DELETE FROM identifier_list_filter_filter_equipment_entity_list
+            WHERE identifier_list_filter_entity_id = ? AND filter_equipment_entity_list_id = ?
+            """;
+
+    private static final String DELETE_EQUIPMENT = "DELETE FROM identifier_list_filter_equipment WHERE id = ?";
+
+    private static final String UPDATE_DISTRIBUTION_KEY = "UPDATE identifier_list_filter_equipment SET distribution_key = ? WHERE id = ?";
+
+    private static final String INSERT_EQUIPMENT = "INSERT INTO identifier_list_filter_equipment (id, equipment_id, distribution_key) VALUES (?, ?, ?)";
+
+    private static final String INSERT_FILTER_EQUIPMENT = """
+            INSERT INTO identifier_list_filter_filter_equipment_entity_list (identifier_list_filter_entity_id, filter_equipment_entity_list_id)
+            VALUES (?, ?)
+            """;
+
+    private static final String UPDATE_MODIFICATION_DATE = "UPDATE identifier_list_filter SET modification_date = ? WHERE id = ?";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public IdentifierListFilterPatchRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void patchEquipments(UUID filterId, IdentifierListFilterPatch patch, Date modificationDate) {
+        Set<String> removedEquipmentIds = new HashSet<>(patch.getRemovedEquipmentIds());
+        Map<String, Double> distributionKeys = new LinkedHashMap<>();
+        patch.getAddedOrUpdatedEquipments().forEach(equipment -> distributionKeys.put(equipment.getEquipmentID(), equipment.getDistributionKey()));
+
+        List<Object[]> removedFilterEquipments = new ArrayList<>();
+        List<Object[]> removedEquipments = new ArrayList<>();
+        List<Object[]> updatedEquipments = new ArrayList<>();
+        Set<String> keptEquipmentIds = new HashSet<>();
+        Set<String> touchedEquipmentIds = new HashSet<>(removedEquipmentIds);
+        touchedEquipmentIds.addAll(distributionKeys.keySet());
+        if (!touchedEquipmentIds.isEmpty()) {
+            jdbcTemplate.query(SELECT_EQUIPMENTS, Map.of("filterId", filterId, "equipmentIds", touchedEquipmentIds), rs -> {
+                UUID id = rs.getObject("id", UUID.class);
+                String equipmentId = rs.getString("equipment_id");
+                if (removedEquipmentIds.contains(equipmentId)) {
+                    removedFilterEquipments.add(new Object[] {filterId, id});
+                    removedEquipments.add(new Object[] {id});
+                } else {
+                    keptEquipmentIds.add(equipmentId);
+                    Double distributionKey = rs.getObject("distribution_key", Double.class);
+                    if (!Objects.equals(distributionKey, distributionKeys.get(equipmentId))) {
+                        updatedEquipments.add(new Object[] {distributionKeys.get(equipmentId), id});
+                    }
+                }
+            });
+        }
+        List<Object[]> addedEquipments = new ArrayList<>();
+        List<Object[]> addedFilterEquipments = new ArrayList<>();
+        distributionKeys.forEach((equipmentId, distributionKey) -> {
+            if (!keptEquipmentIds.contains(equipmentId)) {
+                UUID id = UUID.randomUUID();
+                addedEquipments.add(new Object[] {id, equipmentId, distributionKey});
+                addedFilterEquipments.add(new Object[] {filterId, id});
+            }
+        });
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(DELETE_FILTER_EQUIPMENT, removedFilterEquipments);
+        jdbcTemplate.getJdbcOperations().batchUpdate(DELETE_EQUIPMENT, removedEquipments);
+        jdbcTemplate.getJdbcOperations().batchUpdate(UPDATE_DISTRIBUTION_KEY, updatedEquipments);
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_EQUIPMENT, addedEquipments);
+        jdbcTemplate.getJdbcOperations().batchUpdate(INSERT_FILTER_EQUIPMENT, addedFilterEquipments);
+        jdbcTemplate.getJdbcOperations().update(UPDATE_MODIFICATION_DATE, new Timestamp(modificationDate.getTime()), filterId);
+        // the loaded filter, and its equipments, do not know about the changes
+        entityManager.detach(entityManager.getReference(IdentifierListFilterEntity.class, filterId));
+    }
+}
@@ -8,11 +8,43 @@
 package org.gridsuite.filter.server.repositories.identifierlistfilter;
 
 import org.gridsuite.filter.server.entities.identifierlistfilter.IdentifierListFilterEntity;
+import org.gridsuite.filter.server.repositories.FilterMetadata;
 import org.gridsuite.filter.server.repositories.FilterRepository;
+import org.gridsuite.filter.server.repositories.PersistRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Seddik Yengui <seddik.yengui at rte-france.com>
  */
 
-public interface IdentifierListFilterRepository extends FilterRepository<IdentifierListFilterEntity> {
+public interface IdentifierListFilterRepository extends FilterRepository<IdentifierListFilterEntity>, PersistRepository<IdentifierListFilterEntity>, IdentifierListFilterCopyRepository,
+    IdentifierListFilterDeleteRepository, IdentifierListFilterPatchRepository {
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t")
+    List<FilterMetadata> getFiltersMetadata();
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t WHERE t.id in (:ids)")
+    List<FilterMetadata> findFiltersMetaDataById(List<UUID> ids);
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadata(Limit limit);
+
+    @Override
+    @Query(value = "SELECT t.id as id, t.modificationDate as modificationDate, t.equipmentType as equipmentType from #{#entityName} as t "
+        + "WHERE t.modificationDate > :modificationDate OR (t.modificationDate = :modificationDate AND t.id > :id) ORDER BY t.modificationDate, t.id")
+    List<FilterMetadata> getFiltersMetadataAfter(Date modificationDate, UUID id, Limit limit);
+
+    @Query(value = "SELECT f FROM IdentifierListFilterEntity f LEFT JOIN FETCH f.filterEquipmentEntityList WHERE f.id IN (:ids)")
+    List<IdentifierListFilterEntity> findAllWithEquipmentsByIdIn(Collection<UUID> ids);
+
+    boolean existsBySharedBodyId(UUID sharedBodyId);
 }
@@ -9,11 +9,13 @@ package org.gridsuite.filter.server.repositories.proxies;
 
 import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.server.dto.FilterAttributes;
+import org.gridsuite.filter.server.dto.FilterCursor;
 import org.gridsuite.filter.server.entities.AbstractFilterEntity;
 import org.gridsuite.filter.server.repositories.FilterMetadata;
 import org.gridsuite.filter.server.repositories.FilterRepository;
 import org.gridsuite.filter.utils.EquipmentType;
 import org.gridsuite.filter.utils.FilterType;
+import org.springframework.data.domain.Limit;
 import org.springframework.util.CollectionUtils;
 
 import java.util.*;
@@ -53,6 +55,10 @@ public abstract class AbstractFilterRepositoryProxy<F extends AbstractFilterEnti
         return getEquipmentType();
     }
 
+    public EquipmentType getEquipmentType(FilterMetadata filterMetadata) {
+        return getEquipmentType();
+    }
+
     public Optional<AbstractFilter> getFilter(UUID id) {
         Optional<F> element = getRepository().findById(id);
         if (element.isPresent()) {
@@ -72,30 +78,60 @@ public abstract class AbstractFilterRepositoryProxy<F extends AbstractFilterEnti
         return getRepository().getFiltersMetadata().stream().map(this::metadataToAttribute);
     }
 
+    public Stream<FilterAttributes> getFiltersAttributes(List<UUID> ids) {
+        return getRepository().findFiltersMetaDataById(ids).stream().map(this::metadataToAttribute);
+    }
+
+    /**
+     * @param after the key to start after, null for the first page
+     */
+    public Stream<FilterAttributes> getFiltersAttributes(FilterCursor after, int limit) {
+        List<FilterMetadata> filtersMetadata = after == null
+                ? getRepository().getFiltersMetadata(Limit.of(limit))
+                : getRepository().getFiltersMetadataAfter(after.getModificationDate(), after.getId(), Limit.of(limit));
+        return filtersMetadata.stream().map(this::metadataToAttribute);
+    }
+
     FilterAttributes metadataToAttribute(FilterMetadata f) {
-        return new FilterAttributes(f, getFilterType(), getEquipmentType(f.getId()));
+        return new FilterAttributes(f, getFilterType(), getEquipmentType(f));
     }
 
     public AbstractFilter insert(AbstractFilter f) {
-        return toDto(getRepository().save(fromDto(f)));
+        F filterEntity = fromDto(f);
+        // a filter with the same id is replaced, as before, a new one is persisted like the ones of a bulk creation
+        return toDto(getRepository().existsById(f.getId())
+                ? getRepository().save(filterEntity)
+                : getRepository().persistAll(List.of(filterEntity)).get(0));
     }
 
     public List<AbstractFilter> insertAll(List<AbstractFilter> filters) {
-        List<F> savedFilterEntities = getRepository().saveAll(filters.stream().map(this::fromDto).toList());
+        // the filters are new, persist spares the select merge would issue for each of them
+        List<F> savedFilterEntities = getRepository().persistAll(filters.stream().map(this::fromDto).toList());
         return savedFilterEntities.stream().map(this::toDto).toList();
     }
 
+    public void copyAll(Map<UUID, UUID> newIdsBySourceId) {
+        getRepository().copyAll(newIdsBySourceId, new Date());
+    }
+
     public AbstractFilter modify(UUID id, AbstractFilter f) {
         f.setId(id);
+        // the copies sharing the body keep the current one, the modified filter gets its own
+        getRepository().releaseSharedBodies(List.of(id));
         return toDto(getRepository().save(fromDto(f)));
     }
 
     public boolean deleteById(UUID id) {
+        getRepository().releaseSharedBodies(List.of(id));
         return getRepository().removeById(id) != 0;
     }
 
-    public void deleteAllByIds(List<UUID> ids) {
-        getRepository().deleteAllByIdIn(ids);
+    /**
+     * @return the ids of the filters which existed and have been deleted
+     */
+    public List<UUID> deleteAllByIds(List<UUID> ids) {
+        getRepository().releaseSharedBodies(ids);
+        return getRepository().deleteAllInBulk(ids);
     }
 
     public void deleteAll() {
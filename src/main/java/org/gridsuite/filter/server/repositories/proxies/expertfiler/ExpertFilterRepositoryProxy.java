@@ -12,19 +12,24 @@ import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.expertfilter.ExpertFilter;
 import org.gridsuite.filter.expertfilter.expertrule.*;
 import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertRuleDocument;
 import org.gridsuite.filter.server.entities.expertfilter.ExpertRuleEntity;
 import org.gridsuite.filter.server.entities.expertfilter.ExpertRulePropertiesEntity;
 import org.gridsuite.filter.server.entities.expertfilter.ExpertRuleValueEntity;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertRulesDocument;
+import org.gridsuite.filter.server.repositories.FilterMetadata;
 import org.gridsuite.filter.server.repositories.expertfilter.ExpertFilterRepository;
+import org.gridsuite.filter.server.repositories.expertfilter.ExpertRuleRow;
 import org.gridsuite.filter.server.repositories.proxies.AbstractFilterRepositoryProxy;
 import org.gridsuite.filter.utils.EquipmentType;
 import org.gridsuite.filter.utils.FilterType;
+import org.gridsuite.filter.utils.expertfilter.CombinatorType;
 import org.gridsuite.filter.utils.expertfilter.DataType;
+import org.gridsuite.filter.utils.expertfilter.FieldType;
+import org.gridsuite.filter.utils.expertfilter.OperatorType;
 
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,8 +41,15 @@ import static org.gridsuite.filter.utils.expertfilter.OperatorType.isMultipleCri
 public class ExpertFilterRepositoryProxy extends AbstractFilterRepositoryProxy<ExpertFilterEntity, ExpertFilterRepository> {
     private final ExpertFilterRepository expertFilterRepository;
 
+    private final ExpertRulesStorageMode storageMode;
+
     public ExpertFilterRepositoryProxy(ExpertFilterRepository expertFilterRepository) {
+        this(expertFilterRepository, ExpertRulesStorageMode.TABLES);
+    }
+
+    public ExpertFilterRepositoryProxy(ExpertFilterRepository expertFilterRepository, ExpertRulesStorageMode storageMode) {
         this.expertFilterRepository = expertFilterRepository;
+        this.storageMode = storageMode;
     }
 
     @Override
@@ -45,16 +57,186 @@ public class ExpertFilterRepositoryProxy extends AbstractFilterRepositoryProxy<E
         return expertFilterRepository;
     }
 
+    @Override
+    public Optional<AbstractFilter> getFilter(UUID id) {
+        return expertFilterRepository.findById(id)
+                .map(filterEntity -> toDtos(List.of(filterEntity)).get(0));
+    }
+
+    @Override
+    public List<AbstractFilter> getFilters(List<UUID> ids) {
+        List<ExpertFilterEntity> filterEntities = expertFilterRepository.findAllById(ids);
+        if (filterEntities.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return toDtos(filterEntities);
+    }
+
+    private List<AbstractFilter> toDtos(List<ExpertFilterEntity> filterEntities) {
+        // the copies read the rules of the filter they share them with
+        Map<UUID, ExpertFilterEntity> bodiesById = filterEntities.stream()
+                .collect(Collectors.toMap(ExpertFilterEntity::getId, Function.identity()));
+        List<UUID> missingBodyIds = filterEntities.stream()
+                .map(ExpertFilterEntity::getSharedBodyId)
+                .filter(bodyId -> bodyId != null && !bodiesById.containsKey(bodyId))
+                .distinct()
+                .toList();
+        if (!missingBodyIds.isEmpty()) {
+            expertFilterRepository.findAllById(missingBodyIds).forEach(body -> bodiesById.put(body.getId(), body));
+        }
+
+        filterEntities.stream()
+                .filter(filterEntity -> !bodiesById.containsKey(getBodyId(filterEntity)))
+                .findFirst()
+                .ifPresent(filterEntity -> {
+                    throw new PowsyblException("Rules of expert filter " + filterEntity.getId() + " not found in filter " + getBodyId(filterEntity));
+                });
+
+        List<UUID> idsStoredInTables = filterEntities.stream()
+                .map(filterEntity -> bodiesById.get(getBodyId(filterEntity)))
+                .filter(body -> body.getRulesDocument() == null)
+                .map(ExpertFilterEntity::getId)
+                .distinct()
+                .toList();
+        Map<UUID, ExpertRuleEntity> ruleTrees = idsStoredInTables.isEmpty() ? Map.of() : loadRuleTrees(idsStoredInTables);
+        return filterEntities.stream()
+                .map(filterEntity -> {
+                    ExpertFilterEntity body = bodiesById.get(getBodyId(filterEntity));
+                    return toDto(filterEntity, body.getRulesDocument() != null
+                            ? documentToEntity(body.getRulesDocument())
+                            : ruleTrees.get(body.getId()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static UUID getBodyId(ExpertFilterEntity filterEntity) {
+        return filterEntity.getSharedBodyId() != null ? filterEntity.getSharedBodyId() : filterEntity.getId();
+    }
+
     @Override
     public AbstractFilter toDto(ExpertFilterEntity filterEntity) {
+        return toDto(filterEntity, filterEntity.getRulesDocument() != null
+                ? documentToEntity(filterEntity.getRulesDocument())
+                : filterEntity.getRules());
+    }
+
+    private static AbstractFilter toDto(ExpertFilterEntity filterEntity, ExpertRuleEntity rules) {
         return ExpertFilter.builder()
                 .id(filterEntity.getId())
                 .modificationDate(filterEntity.getModificationDate())
                 .equipmentType(filterEntity.getEquipmentType())
-                .rules(entityToDto(filterEntity.getRules()))
+                .rules(entityToDto(rules))
                 .build();
     }
 
+    /**
+     * @return the root rule of each given filter, with its whole subtree, fetched in a single query
+     */
+    private Map<UUID, ExpertRuleEntity> loadRuleTrees(Collection<UUID> filterIds) {
+        return rowsToRuleTrees(expertFilterRepository.findRuleTreesByFilterIdIn(filterIds));
+    }
+
+    /**
+     * Rebuild detached rule trees from their flattened rows, so that they are converted to dto without touching
+     * the persistence context. The children are attached in the order of the rows, which is the order of the siblings.
+     */
+    static Map<UUID, ExpertRuleEntity> rowsToRuleTrees(List<ExpertRuleRow> rows) {
+        Map<UUID, ExpertRuleEntity> rulesById = new LinkedHashMap<>();
+        Map<UUID, UUID> parentRuleIds = new LinkedHashMap<>();
+        Map<UUID, ExpertRuleEntity> rootRules = new HashMap<>();
+        for (ExpertRuleRow row : rows) {
+            ExpertRuleEntity rule = rulesById.computeIfAbsent(row.getId(), ruleId -> {
+                ExpertRuleEntity newRule = rowToEntity(row);
+                if (row.getParentRuleId() == null) {
+                    rootRules.put(row.getFilterId(), newRule);
+                } else {
+                    parentRuleIds.put(ruleId, row.getParentRuleId());
+                }
+                return newRule;
+            });
+            if (rule instanceof ExpertRulePropertiesEntity propertiesRule && row.getPropertyValue() != null) {
+                propertiesRule.getPropertyValues().add(row.getPropertyValue());
+            }
+        }
+        parentRuleIds.forEach((ruleId, parentRuleId) -> rulesById.get(parentRuleId).getRules().add(rulesById.get(ruleId)));
+        return rootRules;
+    }
+
+    private static ExpertRuleEntity rowToEntity(ExpertRuleRow row) {
+        DataType dataType = DataType.valueOf(row.getDataType());
+        return getDetachedRuleBuilder(dataType, row.getRuleValue(), row.getPropertyName(), new ArrayList<>())
+                .id(row.getId())
+                .combinator(row.getCombinator() != null ? CombinatorType.valueOf(row.getCombinator()) : null)
+                .field(row.getField() != null ? FieldType.valueOf(row.getField()) : null)
+                .operator(row.getOperator() != null ? OperatorType.valueOf(row.getOperator()) : null)
+                .dataType(dataType)
+                .rules(new ArrayList<>())
+                .build();
+    }
+
+    private static ExpertRuleEntity.ExpertRuleEntityBuilder<?, ?> getDetachedRuleBuilder(DataType dataType, String value,
+                                                                                     String propertyName, List<String> propertyValues) {
+        if (dataType == DataType.PROPERTIES) {
+            return ExpertRulePropertiesEntity.builder()
+                    .propertyName(propertyName)
+                    .propertyValues(propertyValues);
+        } else if (dataType == DataType.COMBINATOR) {
+            return ExpertRuleEntity.builder();
+        } else {
+            return ExpertRuleValueEntity.builder()
+                    .value(value);
+        }
+    }
+
+    /**
+     * Rebuild a detached rule tree from its document, to be converted to dto exactly as the rules stored in tables
+     */
+    static ExpertRuleEntity documentToEntity(ExpertRulesDocument rulesDocument) {
+        if (rulesDocument.getVersion() > ExpertRulesDocument.CURRENT_VERSION) {
+            throw new PowsyblException("Unsupported expert rules document version: " + rulesDocument.getVersion());
+        }
+        return documentToEntity(rulesDocument.getRules());
+    }
+
+    private static ExpertRuleEntity documentToEntity(ExpertRuleDocument ruleDocument) {
+        List<String> propertyValues = ruleDocument.getPropertyValues() != null ? ruleDocument.getPropertyValues() : new ArrayList<>();
+        List<ExpertRuleEntity> rules = ruleDocument.getRules() != null
+                ? ruleDocument.getRules().stream().map(ExpertFilterRepositoryProxy::documentToEntity).collect(Collectors.toList())
+                : new ArrayList<>();
+        return getDetachedRuleBuilder(ruleDocument.getDataType(), ruleDocument.getValue(), ruleDocument.getPropertyName(), propertyValues)
+                .combinator(ruleDocument.getCombinator())
+                .field(ruleDocument.getField())
+                .operator(ruleDocument.getOperator())
+                .dataType(ruleDocument.getDataType())
+                .rules(rules)
+                .build();
+    }
+
+    static ExpertRulesDocument dtoToDocument(AbstractExpertRule rule) {
+        return new ExpertRulesDocument(dtoToRuleDocument(rule));
+    }
+
+    private static ExpertRuleDocument dtoToRuleDocument(AbstractExpertRule rule) {
+        ExpertRuleDocument.ExpertRuleDocumentBuilder ruleDocumentBuilder = ExpertRuleDocument.builder()
+                .dataType(rule.getDataType())
+                .combinator(rule.getCombinator())
+                .field(rule.getField())
+                .operator(rule.getOperator());
+        switch (rule.getDataType()) {
+            case COMBINATOR -> ruleDocumentBuilder.rules(rule.getRules() != null
+                    ? rule.getRules().stream().map(ExpertFilterRepositoryProxy::dtoToRuleDocument).toList()
+                    : null);
+            case PROPERTIES -> {
+                PropertiesExpertRule propertiesRule = (PropertiesExpertRule) rule;
+                ruleDocumentBuilder.propertyName(propertiesRule.getPropertyName())
+                        .propertyValues(propertiesRule.getPropertyValues());
+            }
+            case BOOLEAN, NUMBER, STRING, ENUM, FILTER_UUID -> ruleDocumentBuilder.value(rule.getStringValue());
+            default -> throw new PowsyblException("Unsupported data type: " + rule.getDataType());
+        }
+        return ruleDocumentBuilder.build();
+    }
+
     public static AbstractExpertRule entityToDto(ExpertRuleEntity expertRuleEntity) {
         switch (expertRuleEntity.getDataType()) {
             case COMBINATOR -> {
@@ -164,14 +346,98 @@ public class ExpertFilterRepositoryProxy extends AbstractFilterRepositoryProxy<E
         if (dto instanceof ExpertFilter filter) {
             var expertFilterEntityBuilder = ExpertFilterEntity.builder()
                     .modificationDate(filter.getModificationDate())
-                    .equipmentType(filter.getEquipmentType())
-                    .rules(dtoToEntity(filter.getRules()));
+                    .equipmentType(filter.getEquipmentType());
+            if (storageMode == ExpertRulesStorageMode.DOCUMENT) {
+                expertFilterEntityBuilder.rulesDocument(dtoToDocument(filter.getRules()));
+            } else {
+                expertFilterEntityBuilder.rules(dtoToEntity(filter.getRules()));
+            }
             buildAbstractFilter(expertFilterEntityBuilder, filter);
             return expertFilterEntityBuilder.build();
         }
         throw new PowsyblException(WRONG_FILTER_TYPE);
     }
 
+    @Override
+    public AbstractFilter modify(UUID id, AbstractFilter f) {
+        f.setId(id);
+        getRepository().releaseSharedBodies(List.of(id));
+        ExpertFilterEntity filterEntity = storageMode == ExpertRulesStorageMode.TABLES
+                ? expertFilterRepository.findById(id).orElse(null)
+                : null;
+        if (filterEntity != null && filterEntity.getRules() != null
+                && f instanceof ExpertFilter filter && filter.getRules().getDataType() == filterEntity.getRules().getDataType()) {
+            // the stored tree is updated in place, so that only the rules which changed are written
+            filterEntity.setEquipmentType(filter.getEquipmentType());
+            filterEntity.setModificationDate(new Date());
+            updateEntity(filterEntity.getRules(), filter.getRules());
+            return toDto(filterEntity);
+        }
+        return toDto(getRepository().save(fromDto(f)));
+    }
+
+    /**
+     * Update a managed rule and its subtree from a rule of the same data type. A child rule is kept when an
+     * identical one is given, then updated in place from a given rule of the same data type on the same field, and
+     * the remaining ones are deleted or inserted.
+     */
+    static void updateEntity(ExpertRuleEntity ruleEntity, AbstractExpertRule rule) {
+        ruleEntity.setCombinator(rule.getCombinator());
+        ruleEntity.setField(rule.getField());
+        ruleEntity.setOperator(rule.getOperator());
+        if (ruleEntity instanceof ExpertRuleValueEntity valueEntity) {
+            valueEntity.setValue(rule.getStringValue());
+        } else if (ruleEntity instanceof ExpertRulePropertiesEntity propertiesEntity && rule instanceof PropertiesExpertRule propertiesRule) {
+            propertiesEntity.setPropertyName(propertiesRule.getPropertyName());
+            List<String> propertyValues = propertiesRule.getPropertyValues() != null ? propertiesRule.getPropertyValues() : List.of();
+            if (!propertiesEntity.getPropertyValues().equals(propertyValues)) {
+                propertiesEntity.getPropertyValues().clear();
+                propertiesEntity.getPropertyValues().addAll(propertyValues);
+            }
+        }
+
+        List<AbstractExpertRule> rules = rule.getRules() != null ? rule.getRules() : List.of();
+        if (ruleEntity.getRules().isEmpty() && rules.isEmpty()) {
+            return;
+        }
+        List<ExpertRuleEntity> unmatchedEntities = new ArrayList<>(ruleEntity.getRules());
+        Map<ExpertRuleEntity, ExpertRuleDocument> entityDocuments = new IdentityHashMap<>();
+        unmatchedEntities.forEach(entity -> entityDocuments.put(entity, dtoToRuleDocument(entityToDto(entity))));
+        // the entity of each given rule, at its position
+        ExpertRuleEntity[] childEntities = new ExpertRuleEntity[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            ExpertRuleDocument childDocument = dtoToRuleDocument(rules.get(i));
+            int position = i;
+            unmatchedEntities.stream()
+                    .filter(entity -> entityDocuments.get(entity).equals(childDocument))
+                    .findFirst()
+                    .ifPresent(entity -> {
+                        unmatchedEntities.remove(entity);
+                        childEntities[position] = entity;
+                    });
+        }
+
+        for (int i = 0; i < rules.size(); i++) {
+            if (childEntities[i] != null) {
+                continue;
+            }
+            AbstractExpertRule childRule = rules.get(i);
+            int position = i;
+            unmatchedEntities.stream()
+                    .filter(entity -> entity.getDataType() == childRule.getDataType() && entity.getField() == childRule.getField())
+                    .findFirst()
+                    .ifPresentOrElse(entity -> {
+                        unmatchedEntities.remove(entity);
+                        updateEntity(entity, childRule);
+                        childEntities[position] = entity;
+                    }, () -> childEntities[position] = dtoToEntities(getRuleBuilder(childRule).parentRule(ruleEntity), childRule.getRules()));
+        }
+
+        // the rules left are deleted with their subtree by orphan removal, the others are stored in the given order
+        ruleEntity.getRules().clear();
+        ruleEntity.getRules().addAll(Arrays.asList(childEntities));
+    }
+
     public static ExpertRuleEntity.ExpertRuleEntityBuilder<?, ?> getRuleBuilder(AbstractExpertRule filter) {
         ExpertRuleEntity.ExpertRuleEntityBuilder<?, ?> expertRuleEntityBuilder = null;
         if (filter.getDataType() == DataType.COMBINATOR) {
@@ -217,26 +483,18 @@ public class ExpertFilterRepositoryProxy extends AbstractFilterRepositoryProxy<E
             throw new PowsyblException("Unsupported data type: " + filter.getDataType());
         }
 
-        List<ExpertRuleEntity> rules = dtoToEntities(filter.getRules(), expertRuleEntityBuilder.build());
-        expertRuleEntityBuilder.rules(rules);
-
-        return expertRuleEntityBuilder.build();
+        return dtoToEntities(expertRuleEntityBuilder, filter.getRules());
     }
 
-    private static List<ExpertRuleEntity> dtoToEntities(List<AbstractExpertRule> ruleFromDto, ExpertRuleEntity parentRuleEntity) {
-        if (ruleFromDto == null) {
-            return Collections.emptyList();
+    /**
+     * The children reference the very instance of their parent, so that the tree can be persisted without merge
+     */
+    private static ExpertRuleEntity dtoToEntities(ExpertRuleEntity.ExpertRuleEntityBuilder<?, ?> expertRuleEntityBuilder, List<AbstractExpertRule> ruleFromDto) {
+        ExpertRuleEntity expertRuleEntity = expertRuleEntityBuilder.rules(new ArrayList<>()).build();
+        if (ruleFromDto != null) {
+            ruleFromDto.forEach(rule -> expertRuleEntity.getRules().add(dtoToEntities(getRuleBuilder(rule).parentRule(expertRuleEntity), rule.getRules())));
         }
-
-        return ruleFromDto.stream()
-                .map(rule -> {
-                    ExpertRuleEntity.ExpertRuleEntityBuilder<?, ?> expertRuleEntityBuilder = getRuleBuilder(rule).parentRule(parentRuleEntity);
-                    List<ExpertRuleEntity> rules = dtoToEntities(rule.getRules(), expertRuleEntityBuilder.build());
-                    expertRuleEntityBuilder.rules(rules);
-
-                    return expertRuleEntityBuilder.build();
-                })
-                .collect(Collectors.toList());
+        return expertRuleEntity;
     }
 
     @Override
@@ -251,9 +509,15 @@ public class ExpertFilterRepositoryProxy extends AbstractFilterRepositoryProxy<E
 
     @Override
     public EquipmentType getEquipmentType(UUID id) {
-        return expertFilterRepository.findById(id)
-                .map(ExpertFilterEntity::getEquipmentType)
+        return expertFilterRepository.findFiltersMetaDataById(List.of(id)).stream()
+                .findFirst()
+                .map(FilterMetadata::getEquipmentType)
                 .orElseThrow(() -> new PowsyblException("Identifier list filter " + id + " not found"));
     }
 
+    @Override
+    public EquipmentType getEquipmentType(FilterMetadata filterMetadata) {
+        return filterMetadata.getEquipmentType();
+    }
+
 }
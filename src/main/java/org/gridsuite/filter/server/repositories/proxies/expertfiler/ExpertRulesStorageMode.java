@@ -0,0 +1,25 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.proxies.expertfiler;
+
+/**
+ * How the rule trees of the expert filters are written. Both formats are always readable, so that the mode can be
+ * switched without migrating the existing filters.
+ *
+ * @author agent <agent at local>
+ */
+public enum ExpertRulesStorageMode {
+    /**
+     * One row per rule in the expert_rule tables
+     */
+    TABLES,
+    /**
+     * One JSON document per filter, in the expert_filter table
+     */
+    DOCUMENT
+}
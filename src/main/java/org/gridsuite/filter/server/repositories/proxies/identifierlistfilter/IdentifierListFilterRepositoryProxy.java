@@ -11,14 +11,17 @@ import com.powsybl.commons.PowsyblException;
 import org.gridsuite.filter.AbstractFilter;
 import org.gridsuite.filter.identifierlistfilter.IdentifierListFilterEquipmentAttributes;
 import org.gridsuite.filter.identifierlistfilter.IdentifierListFilter;
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
 import org.gridsuite.filter.server.entities.identifierlistfilter.IdentifierListFilterEntity;
 import org.gridsuite.filter.server.entities.identifierlistfilter.IdentifierListFilterEquipmentEntity;
+import org.gridsuite.filter.server.repositories.FilterMetadata;
 import org.gridsuite.filter.server.repositories.identifierlistfilter.IdentifierListFilterRepository;
 import org.gridsuite.filter.server.repositories.proxies.AbstractFilterRepositoryProxy;
 import org.gridsuite.filter.utils.EquipmentType;
 import org.gridsuite.filter.utils.FilterType;
 
-import java.util.UUID;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -28,8 +31,15 @@ import java.util.stream.Collectors;
 public class IdentifierListFilterRepositoryProxy extends AbstractFilterRepositoryProxy<IdentifierListFilterEntity, IdentifierListFilterRepository> {
     private final IdentifierListFilterRepository identifierListFilterRepository;
 
+    private final IdentifierListStorageMode storageMode;
+
     public IdentifierListFilterRepositoryProxy(IdentifierListFilterRepository identifierListFilterRepository) {
+        this(identifierListFilterRepository, IdentifierListStorageMode.TABLES);
+    }
+
+    public IdentifierListFilterRepositoryProxy(IdentifierListFilterRepository identifierListFilterRepository, IdentifierListStorageMode storageMode) {
         this.identifierListFilterRepository = identifierListFilterRepository;
+        this.storageMode = storageMode;
     }
 
     @Override
@@ -37,16 +47,117 @@ public class IdentifierListFilterRepositoryProxy extends AbstractFilterRepositor
         return identifierListFilterRepository;
     }
 
+    @Override
+    public Optional<AbstractFilter> getFilter(UUID id) {
+        return getFilters(List.of(id)).stream().findFirst();
+    }
+
+    @Override
+    public List<AbstractFilter> getFilters(List<UUID> ids) {
+        List<IdentifierListFilterEntity> filterEntities = identifierListFilterRepository.findAllWithEquipmentsByIdIn(ids);
+
+        // the copies read the equipments of the filter they share them with
+        Map<UUID, IdentifierListFilterEntity> bodiesById = filterEntities.stream()
+                .collect(Collectors.toMap(IdentifierListFilterEntity::getId, Function.identity()));
+        List<UUID> missingBodyIds = filterEntities.stream()
+                .map(IdentifierListFilterEntity::getSharedBodyId)
+                .filter(bodyId -> bodyId != null && !bodiesById.containsKey(bodyId))
+                .distinct()
+                .toList();
+        if (!missingBodyIds.isEmpty()) {
+            identifierListFilterRepository.findAllWithEquipmentsByIdIn(missingBodyIds).forEach(body -> bodiesById.put(body.getId(), body));
+        }
+
+        return filterEntities.stream()
+                .map(filterEntity -> {
+                    UUID bodyId = filterEntity.getSharedBodyId() != null ? filterEntity.getSharedBodyId() : filterEntity.getId();
+                    IdentifierListFilterEntity body = bodiesById.get(bodyId);
+                    if (body == null) {
+                        throw new PowsyblException("Equipments of identifier list filter " + filterEntity.getId() + " not found in filter " + bodyId);
+                    }
+                    return toDto(filterEntity, body);
+                })
+                .collect(Collectors.toList());
+    }
+
     @Override
     public AbstractFilter toDto(IdentifierListFilterEntity filterEntity) {
+        return toDto(filterEntity, filterEntity);
+    }
+
+    private static AbstractFilter toDto(IdentifierListFilterEntity filterEntity, IdentifierListFilterEntity body) {
         return new IdentifierListFilter(filterEntity.getId(),
                 filterEntity.getModificationDate(),
                 filterEntity.getEquipmentType(),
-                filterEntity.getFilterEquipmentEntityList()
+                getEquipmentsAttributes(body));
+    }
+
+    private static List<IdentifierListFilterEquipmentAttributes> getEquipmentsAttributes(IdentifierListFilterEntity body) {
+        List<IdentifierListFilterEquipmentAttributes> equipmentsAttributes;
+        if (body.getEquipmentIds() != null) {
+            equipmentsAttributes = new ArrayList<>(body.getEquipmentIds().length);
+            for (int i = 0; i < body.getEquipmentIds().length; i++) {
+                equipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes(body.getEquipmentIds()[i],
+                                                                                     body.getDistributionKeys()[i]));
+            }
+        } else {
+            equipmentsAttributes = body.getFilterEquipmentEntityList()
                         .stream()
                         .map(entity -> new IdentifierListFilterEquipmentAttributes(entity.getEquipmentId(),
                                                                      entity.getDistributionKey()))
-                        .collect(Collectors.toList()));
+                        .collect(Collectors.toList());
+        }
+        return equipmentsAttributes;
+    }
+
+    /**
+     * Apply the patch to the equipments of the filter. Only the affected rows are written when the equipments are
+     * stored in tables, arrays are rewritten as a whole, and a filter sharing its equipments with duplicates gets its
+     * own patched copy of them.
+     */
+    public void patch(UUID id, IdentifierListFilterPatch patch) {
+        IdentifierListFilterEntity filterEntity = identifierListFilterRepository.findById(id)
+                .orElseThrow(() -> new PowsyblException("Identifier list filter " + id + " not found"));
+        if (filterEntity.getSharedBodyId() != null || identifierListFilterRepository.existsBySharedBodyId(id)) {
+            IdentifierListFilter filter = (IdentifierListFilter) getFilter(id).orElseThrow();
+            modify(id, new IdentifierListFilter(id, new Date(), filter.getEquipmentType(),
+                    patchEquipmentsAttributes(filter.getFilterEquipmentsAttributes(), patch)));
+        } else if (filterEntity.getEquipmentIds() != null) {
+            List<IdentifierListFilterEquipmentAttributes> equipmentsAttributes = patchEquipmentsAttributes(getEquipmentsAttributes(filterEntity), patch);
+            filterEntity.setEquipmentIds(equipmentsAttributes.stream()
+                    .map(IdentifierListFilterEquipmentAttributes::getEquipmentID)
+                    .toArray(String[]::new));
+            filterEntity.setDistributionKeys(equipmentsAttributes.stream()
+                    .map(IdentifierListFilterEquipmentAttributes::getDistributionKey)
+                    .toArray(Double[]::new));
+            filterEntity.setModificationDate(new Date());
+        } else {
+            identifierListFilterRepository.patchEquipments(id, patch, new Date());
+        }
+    }
+
+    private static List<IdentifierListFilterEquipmentAttributes> patchEquipmentsAttributes(List<IdentifierListFilterEquipmentAttributes> equipmentsAttributes,
+                                                                                           IdentifierListFilterPatch patch) {
+        Set<String> removedEquipmentIds = new HashSet<>(patch.getRemovedEquipmentIds());
+        Map<String, Double> distributionKeys = new LinkedHashMap<>();
+        patch.getAddedOrUpdatedEquipments().forEach(equipment -> distributionKeys.put(equipment.getEquipmentID(), equipment.getDistributionKey()));
+        List<IdentifierListFilterEquipmentAttributes> patchedEquipmentsAttributes = new ArrayList<>();
+        Set<String> keptEquipmentIds = new HashSet<>();
+        for (IdentifierListFilterEquipmentAttributes equipmentAttributes : equipmentsAttributes) {
+            String equipmentId = equipmentAttributes.getEquipmentID();
+            if (!removedEquipmentIds.contains(equipmentId)) {
+                keptEquipmentIds.add(equipmentId);
+                patchedEquipmentsAttributes.add(distributionKeys.containsKey(equipmentId)
+                        ? new IdentifierListFilterEquipmentAttributes(equipmentId, distributionKeys.get(equipmentId))
+                        : equipmentAttributes);
+            }
+        }
+        distributionKeys.forEach((equipmentId, distributionKey) -> {
+            if (!keptEquipmentIds.contains(equipmentId)) {
+                patchedEquipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes(equipmentId, distributionKey));
+            }
+        });
+        return patchedEquipmentsAttributes;
     }
 
     @Override
@@ -54,15 +165,26 @@ public class IdentifierListFilterRepositoryProxy extends AbstractFilterRepositor
         if (dto instanceof IdentifierListFilter) {
             var filter = (IdentifierListFilter) dto;
             var identifierListFilterEntityBuilder = IdentifierListFilterEntity.builder()
-                    .equipmentType(filter.getEquipmentType())
-                    .filterEquipmentEntityList(filter.getFilterEquipmentsAttributes()
-                            .stream()
-                            .map(attributes -> IdentifierListFilterEquipmentEntity.builder()
-                                    .id(UUID.randomUUID())
-                                    .equipmentId(attributes.getEquipmentID())
-                                    .distributionKey(attributes.getDistributionKey())
-                                    .build())
-                            .collect(Collectors.toList()));
+                    .equipmentType(filter.getEquipmentType());
+            if (storageMode == IdentifierListStorageMode.ARRAYS) {
+                identifierListFilterEntityBuilder
+                        .filterEquipmentEntityList(new ArrayList<>())
+                        .equipmentIds(filter.getFilterEquipmentsAttributes().stream()
+                                .map(IdentifierListFilterEquipmentAttributes::getEquipmentID)
+                                .toArray(String[]::new))
+                        .distributionKeys(filter.getFilterEquipmentsAttributes().stream()
+                                .map(IdentifierListFilterEquipmentAttributes::getDistributionKey)
+                                .toArray(Double[]::new));
+            } else {
+                identifierListFilterEntityBuilder.filterEquipmentEntityList(filter.getFilterEquipmentsAttributes()
+                        .stream()
+                        .map(attributes -> IdentifierListFilterEquipmentEntity.builder()
+                                .id(UUID.randomUUID())
+                                .equipmentId(attributes.getEquipmentID())
+                                .distributionKey(attributes.getDistributionKey())
+                                .build())
+                        .collect(Collectors.toList()));
+            }
 
             buildAbstractFilter(identifierListFilterEntityBuilder, filter);
             return identifierListFilterEntityBuilder.build();
@@ -82,9 +204,15 @@ public class IdentifierListFilterRepositoryProxy extends AbstractFilterRepositor
 
     @Override
     public EquipmentType getEquipmentType(UUID id) {
-        return identifierListFilterRepository.findById(id)
-            .map(IdentifierListFilterEntity::getEquipmentType)
+        return identifierListFilterRepository.findFiltersMetaDataById(List.of(id)).stream()
+            .findFirst()
+            .map(FilterMetadata::getEquipmentType)
             .orElseThrow(() -> new PowsyblException("Identifier list filter " + id + " not found"));
     }
 
+    @Override
+    public EquipmentType getEquipmentType(FilterMetadata filterMetadata) {
+        return filterMetadata.getEquipmentType();
+    }
+
 }
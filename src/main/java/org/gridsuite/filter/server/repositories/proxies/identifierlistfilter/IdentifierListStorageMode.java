@@ -0,0 +1,25 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.proxies.identifierlistfilter;
+
+/**
+ * How the equipments of the identifier list filters are written. Both formats are always readable, so that the mode
+ * can be switched without migrating the existing filters.
+ *
+ * @author agent <agent at local>
+ */
+public enum IdentifierListStorageMode {
+    /**
+     * One row per equipment in the identifier_list_filter_equipment table
+     */
+    TABLES,
+    /**
+     * Equipment ids and distribution keys packed in two parallel arrays, in the identifier_list_filter table
+     */
+    ARRAYS
+}
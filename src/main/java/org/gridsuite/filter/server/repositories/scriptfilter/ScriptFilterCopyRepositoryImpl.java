@@ -0,0 +1,57 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.scriptfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Scripts are a single column, they are copied entirely
+ *
+ * @author agent <agent at local>
+ */
+public class ScriptFilterCopyRepositoryImpl implements ScriptFilterCopyRepository {
+
+    private static final String COPY_FILTER = """
+            INSERT INTO script_filter (id, modification_date, script)
+            SELECT ?, ?, script FROM script_filter WHERE id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ScriptFilterCopyRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void copyAll(Map<UUID, UUID> newIdsBySourceId, Date modificationDate) {
+        // the sources may have been written in the same transaction
+        entityManager.flush();
+        Timestamp timestamp = new Timestamp(modificationDate.getTime());
+        jdbcTemplate.batchUpdate(COPY_FILTER, newIdsBySourceId.entrySet().stream()
+                .map(ids -> new Object[] {ids.getValue(), timestamp, ids.getKey()})
+                .toList());
+    }
+
+    @Override
+    public void releaseSharedBodies(Collection<UUID> ids) {
+        // nothing is shared
+    }
+}
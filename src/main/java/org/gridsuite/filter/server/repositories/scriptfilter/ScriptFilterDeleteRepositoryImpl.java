@@ -0,0 +1,52 @@
+/*
+ *  Copyright (c) 2026, RTE (http://www.rte-france.com)
+ *  This Source Code Form is subject to the terms of the Mozilla Public
+ *  License, v. 2.0. If a copy of the MPL was not distributed with this
+ *  file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package org.gridsuite.filter.server.repositories.scriptfilter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * @author agent <agent at local>
+ */
+public class ScriptFilterDeleteRepositoryImpl implements ScriptFilterDeleteRepository {
+
+    private static final String SELECT_FILTERS = "SELECT id FROM script_filter WHERE id IN (:ids)";
+
+    private static final String DELETE_FILTERS = "DELETE FROM script_filter WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ScriptFilterDeleteRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public List<UUID> deleteAllInBulk(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        entityManager.flush();
+        Map<String, Collection<UUID>> parameters = Map.of("ids", ids);
+        List<UUID> deletedIds = jdbcTemplate.queryForList(SELECT_FILTERS, parameters, UUID.class);
+        jdbcTemplate.update(DELETE_FILTERS, parameters);
+        // the loaded entities would be deleted again on flush
+        entityManager.clear();
+        return deletedIds;
+    }
+}
@@ -8,6 +8,7 @@ package org.gridsuite.filter.server.repositories.scriptfilter;
 
 import org.gridsuite.filter.server.entities.scriptfilter.ScriptFilterEntity;
 import org.gridsuite.filter.server.repositories.FilterRepository;
+import org.gridsuite.filter.server.repositories.PersistRepository;
 import org.springframework.stereotype.Repository;
 
 
@@ -15,5 +16,6 @@ import org.springframework.stereotype.Repository;
  * @author Jacuqes Borsenberger <jacques.borsenberger at rte-france.com>
  */
 @Repository
-public interface ScriptFilterRepository extends FilterRepository<ScriptFilterEntity> {
+public interface ScriptFilterRepository extends FilterRepository<ScriptFilterEntity>, PersistRepository<ScriptFilterEntity>, ScriptFilterCopyRepository,
+    ScriptFilterDeleteRepository {
 }
@@ -8,6 +8,7 @@ package org.gridsuite.filter.server;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.Option;
@@ -15,12 +16,17 @@ import com.jayway.jsonpath.spi.json.JacksonJsonProvider;
 import com.jayway.jsonpath.spi.json.JsonProvider;
 import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
 import com.jayway.jsonpath.spi.mapper.MappingProvider;
+import com.powsybl.commons.PowsyblException;
 import com.powsybl.iidm.network.*;
 import com.powsybl.iidm.network.test.*;
 import com.powsybl.network.store.client.NetworkStoreService;
 import com.powsybl.network.store.client.PreloadingStrategy;
 import com.powsybl.network.store.iidm.impl.NetworkFactoryImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.gridsuite.filter.AbstractFilter;
+import org.gridsuite.filter.FilterLoader;
 import org.gridsuite.filter.IFilterAttributes;
 import org.gridsuite.filter.expertfilter.ExpertFilter;
 import org.gridsuite.filter.expertfilter.expertrule.*;
@@ -28,14 +34,33 @@ import org.gridsuite.filter.identifierlistfilter.FilterEquipments;
 import org.gridsuite.filter.identifierlistfilter.IdentifiableAttributes;
 import org.gridsuite.filter.identifierlistfilter.IdentifierListFilter;
 import org.gridsuite.filter.identifierlistfilter.IdentifierListFilterEquipmentAttributes;
+import org.gridsuite.filter.scriptfilter.ScriptFilter;
+import org.gridsuite.filter.server.configs.FilterEvaluationConfig;
 import org.gridsuite.filter.server.dto.FilterAttributes;
+import org.gridsuite.filter.server.dto.FilterCursor;
+import org.gridsuite.filter.server.dto.IdentifierListFilterPatch;
+import org.gridsuite.filter.server.dto.IdsByGroup;
+import org.gridsuite.filter.server.entities.expertfilter.ExpertFilterEntity;
+import org.gridsuite.filter.server.repositories.proxies.expertfiler.ExpertFilterRepositoryProxy;
+import org.gridsuite.filter.server.repositories.proxies.expertfiler.ExpertRulesStorageMode;
+import org.gridsuite.filter.server.repositories.proxies.identifierlistfilter.IdentifierListFilterRepositoryProxy;
+import org.gridsuite.filter.server.repositories.proxies.identifierlistfilter.IdentifierListStorageMode;
+import org.gridsuite.filter.server.repositories.FilterTypeRegistryRepository;
+import org.gridsuite.filter.server.repositories.expertfilter.ExpertFilterRepository;
+import org.gridsuite.filter.server.repositories.identifierlistfilter.IdentifierListFilterRepository;
 import org.gridsuite.filter.server.utils.MatcherJson;
 import org.gridsuite.filter.server.utils.assertions.Assertions;
 import org.gridsuite.filter.utils.EquipmentType;
 import org.gridsuite.filter.utils.FilterType;
+import org.gridsuite.filter.utils.FiltersUtils;
 import org.gridsuite.filter.utils.expertfilter.CombinatorType;
+import org.gridsuite.filter.utils.expertfilter.DataType;
 import org.gridsuite.filter.utils.expertfilter.FieldType;
 import org.gridsuite.filter.utils.expertfilter.OperatorType;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -44,25 +69,47 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cloud.stream.binder.test.InputDestination;
 import org.springframework.cloud.stream.binder.test.OutputDestination;
 import org.springframework.cloud.stream.binder.test.TestChannelBinderConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.unit.DataSize;
 
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.apache.commons.lang3.StringUtils.join;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -89,12 +136,48 @@ public class FilterEntityControllerTest {
     @Autowired
     private FilterService filterService;
 
+    @Autowired
+    private IdentifierListFilterRepository identifierListFilterRepository;
+
+    @Autowired
+    private FilterTypeRegistryRepository filterTypeRegistryRepository;
+
+    @Autowired
+    private ExpertFilterRepository expertFilterRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
     @MockBean
     private NetworkStoreService networkStoreService;
 
     @Autowired
     private OutputDestination output;
 
+    @Autowired
+    private InputDestination input;
+
+    @Autowired
+    private FilterCache filterCache;
+
+    @Autowired
+    private ExpertFilterPlanCache planCache;
+
+    @Autowired
+    private NetworkCache networkCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     ObjectMapper objectMapper = new ObjectMapper();
 
@@ -113,6 +196,8 @@ public class FilterEntityControllerTest {
 
     private String elementUpdateDestination = "element.update";
 
+    private String filterInvalidationDestination = "filter.invalidation";
+
     @Before
     public void setUp() {
         Configuration.defaultConfiguration();
@@ -182,6 +267,8 @@ public class FilterEntityControllerTest {
 
     private void cleanDB() {
         filterService.deleteAll();
+        // the networks are created again for each test
+        networkCache.invalidateAll();
 
     }
 
@@ -282,6 +369,15 @@ public class FilterEntityControllerTest {
         checkElementUpdatedMessageSent(filterId, userId);
     }
 
+    private void patchIdentifierListFilter(UUID filterId, IdentifierListFilterPatch patch, String userId) throws Exception {
+        mvc.perform(patch(URL_TEMPLATE + "/" + filterId)
+                        .content(objectMapper.writeValueAsString(patch))
+                        .contentType(APPLICATION_JSON)
+                        .header(USER_ID_HEADER, userId))
+                .andExpect(status().isOk());
+        checkElementUpdatedMessageSent(filterId, userId);
+    }
+
     private UUID duplicateFilter(UUID filterId) throws Exception {
         String response = mvc.perform(post(URL_TEMPLATE).param("duplicateFrom", filterId.toString()))
                 .andExpect(status().isOk())
@@ -342,6 +438,1319 @@ public class FilterEntityControllerTest {
         Assertions.assertThat(allFilters).isEmpty();
     }
 
+    @Test
+    public void testFilterTypeRouting() throws Exception {
+        UUID filterId = UUID.randomUUID();
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d)));
+        insertFilter(filterId, identifierListFilter);
+        assertEquals(FilterType.IDENTIFIER_LIST, filterTypeRegistryRepository.findById(filterId).orElseThrow().getFilterType());
+
+        // changing the filter type moves the filter to the expert filters table
+        List<AbstractExpertRule> rules = new ArrayList<>();
+        createExpertRules(rules, new TreeSet<>(Set.of("FR")), new TreeSet<>(Set.of(380.)));
+        ExpertFilter expertFilter = new ExpertFilter(null, new Date(), EquipmentType.GENERATOR,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build());
+        updateFilter(filterId, expertFilter, "userId");
+        expertFilter.setId(filterId);
+        checkExpertFilter(filterId, expertFilter);
+        assertEquals(FilterType.EXPERT, filterTypeRegistryRepository.findById(filterId).orElseThrow().getFilterType());
+        assertFalse(identifierListFilterRepository.existsById(filterId));
+
+        deleteFilter(filterId);
+        assertFalse(filterTypeRegistryRepository.existsById(filterId));
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId)).andExpect(status().isNotFound());
+        mvc.perform(delete(URL_TEMPLATE + "/" + filterId)).andExpect(status().isNotFound());
+
+        // a filter deleted by another server instance must not be found through the stale cached type
+        UUID otherFilterId = UUID.randomUUID();
+        insertFilter(otherFilterId, new IdentifierListFilter(otherFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d))));
+        identifierListFilterRepository.deleteById(otherFilterId);
+        filterTypeRegistryRepository.deleteById(otherFilterId);
+        mvc.perform(get(URL_TEMPLATE + "/" + otherFilterId)).andExpect(status().isNotFound());
+
+        // the cached types are bounded, the evicted ones are read again from the registry
+        MeterRegistry smallMeterRegistry = new SimpleMeterRegistry();
+        FilterTypeRegistry smallFilterTypeRegistry = new FilterTypeRegistry(filterTypeRegistryRepository, smallMeterRegistry, 2);
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        smallFilterTypeRegistry.registerAll(Map.of(ids.get(0), FilterType.EXPERT, ids.get(1), FilterType.SCRIPT, ids.get(2), FilterType.IDENTIFIER_LIST));
+        assertEquals(2, smallFilterTypeRegistry.size());
+        assertEquals(1, smallMeterRegistry.get("cache.evictions").tag("cache", FilterTypeRegistry.CACHE_NAME).counter().count(), 0);
+        assertEquals(Map.of(ids.get(0), FilterType.EXPERT, ids.get(1), FilterType.SCRIPT, ids.get(2), FilterType.IDENTIFIER_LIST),
+                smallFilterTypeRegistry.getFilterTypes(ids));
+        assertEquals(2, smallFilterTypeRegistry.size());
+        assertEquals(1, smallMeterRegistry.get("cache.gets").tag("cache", FilterTypeRegistry.CACHE_NAME).tag("result", "miss").counter().count(), 0);
+        filterTypeRegistryRepository.deleteAllById(ids);
+    }
+
+    @Test
+    public void testGetFiltersInBatch() throws Exception {
+        List<UUID> filterIds = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            UUID filterId = UUID.randomUUID();
+            filterIds.add(filterId);
+            if (i % 2 == 0) {
+                insertFilter(filterId, new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR,
+                        List.of(new IdentifierListFilterEquipmentAttributes("GEN" + i, 1d), new IdentifierListFilterEquipmentAttributes("GEN2", null))));
+            } else {
+                List<AbstractExpertRule> rules = new ArrayList<>();
+                createExpertLineRules(rules, COUNTRIES1, COUNTRIES2, new TreeSet<>(Set.of(5., 8.)), new TreeSet<>(Set.of(6.)));
+                insertFilter(filterId, new ExpertFilter(filterId, new Date(), EquipmentType.LINE,
+                        CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build()));
+            }
+        }
+        Collections.reverse(filterIds);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        List<AbstractFilter> someFilters = filterService.getFilters(filterIds.subList(0, 4));
+        long statementsForSomeFilters = statistics.getPrepareStatementCount();
+        statistics.clear();
+        List<AbstractFilter> allFilters = filterService.getFilters(filterIds);
+        long statementsForAllFilters = statistics.getPrepareStatementCount();
+        statistics.clear();
+        List<IFilterAttributes> allFiltersAttributes = filterService.getFilters();
+        long statementsForAllFiltersAttributes = statistics.getPrepareStatementCount();
+        statistics.setStatisticsEnabled(false);
+
+        // one metadata query per filter table, equipment type included
+        assertEquals(3, statementsForAllFiltersAttributes);
+        assertEquals(12, allFiltersAttributes.size());
+        allFiltersAttributes.forEach(attributes -> assertEquals(attributes.getType() == FilterType.EXPERT ? EquipmentType.LINE : EquipmentType.GENERATOR, attributes.getEquipmentType()));
+
+        // filters come back in the requested order, with a number of statements not depending on their count
+        assertEquals(filterIds.subList(0, 4), someFilters.stream().map(AbstractFilter::getId).toList());
+        assertEquals(filterIds, allFilters.stream().map(AbstractFilter::getId).toList());
+        assertEquals(statementsForSomeFilters, statementsForAllFilters);
+        allFilters.stream()
+                .filter(IdentifierListFilter.class::isInstance)
+                .forEach(filter -> assertEquals(2, ((IdentifierListFilter) filter).getFilterEquipmentsAttributes().size()));
+
+        // metadata keep the requested order and do not carry the filters bodies
+        String metadataAsString = mvc.perform(get(URL_TEMPLATE + "/metadata").param("ids", filterIds.stream().map(UUID::toString).toArray(String[]::new)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<FilterAttributes> filtersMetadata = objectMapper.readValue(metadataAsString, new TypeReference<>() { });
+        assertEquals(filterIds, filtersMetadata.stream().map(FilterAttributes::getId).toList());
+        assertFalse(metadataAsString.contains("GEN2"));
+        assertFalse(metadataAsString.contains("rules"));
+    }
+
+    @Test
+    public void testExpertRulesStorageModes() {
+        List<AbstractExpertRule> orRules = new ArrayList<>();
+        orRules.add(FilterUuidExpertRule.builder().field(FieldType.ID).operator(OperatorType.IS_PART_OF)
+                .values(new TreeSet<>(Set.of(UUID.randomUUID().toString(), UUID.randomUUID().toString()))).build());
+        orRules.add(NumberExpertRule.builder().field(FieldType.MAX_P).operator(OperatorType.GREATER).value(12.5).build());
+        List<AbstractExpertRule> andRules = new ArrayList<>();
+        andRules.add(CombinatorExpertRule.builder().combinator(CombinatorType.OR).rules(orRules).build());
+        andRules.add(StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("GEN").build());
+        andRules.add(BooleanExpertRule.builder().field(FieldType.VOLTAGE_REGULATOR_ON).operator(OperatorType.EQUALS).value(true).build());
+        andRules.add(EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.IN).values(new TreeSet<>(Set.of("FR", "BE"))).build());
+        andRules.add(NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.BETWEEN).values(new TreeSet<>(Set.of(360., 400.))).build());
+        andRules.add(PropertiesExpertRule.builder().field(FieldType.FREE_PROPERTIES).operator(OperatorType.IN)
+                .propertyName("region").propertyValues(List.of("north", "south", "east")).build());
+        ExpertFilter expertFilter = new ExpertFilter(null, new Date(), EquipmentType.GENERATOR,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(andRules).build());
+
+        for (ExpertRulesStorageMode storageMode : ExpertRulesStorageMode.values()) {
+            ExpertFilterRepositoryProxy proxy = new ExpertFilterRepositoryProxy(expertFilterRepository, storageMode);
+            UUID filterId = UUID.randomUUID();
+            expertFilter.setId(filterId);
+            proxy.insert(expertFilter);
+
+            // both formats give back the same filter, through single and batch loading
+            ExpertFilter foundFilter = (ExpertFilter) proxy.getFilter(filterId).orElseThrow();
+            Assertions.assertThat(foundFilter).recursivelyEquals(expertFilter, "topologyKind", "modificationDate");
+            Assertions.assertThat((ExpertFilter) proxy.getFilters(List.of(filterId)).get(0)).recursivelyEquals(expertFilter, "topologyKind", "modificationDate");
+            PropertiesExpertRule foundPropertiesRule = (PropertiesExpertRule) foundFilter.getRules().getRules().stream()
+                    .filter(PropertiesExpertRule.class::isInstance).findFirst().orElseThrow();
+            assertEquals(List.of("north", "south", "east"), foundPropertiesRule.getPropertyValues());
+            assertEquals(storageMode == ExpertRulesStorageMode.TABLES, !expertFilterRepository.findRuleTreesByFilterIdIn(List.of(filterId)).isEmpty());
+
+            // a copy shares the rules of its source, whatever their storage format
+            UUID copyId = UUID.randomUUID();
+            proxy.copyAll(Map.of(filterId, copyId));
+            expertFilter.setId(copyId);
+            Assertions.assertThat((ExpertFilter) proxy.getFilter(copyId).orElseThrow()).recursivelyEquals(expertFilter, "topologyKind", "modificationDate");
+            assertEquals(filterId, expertFilterRepository.findById(copyId).orElseThrow().getSharedBodyId());
+        }
+    }
+
+    @Test
+    public void testIdentifierListStorageModes() {
+        List<IdentifierListFilterEquipmentAttributes> equipmentsAttributes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            equipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes("GEN" + i, i % 3 == 0 ? null : (double) i));
+        }
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(null, new Date(), EquipmentType.GENERATOR, equipmentsAttributes);
+
+        for (IdentifierListStorageMode storageMode : IdentifierListStorageMode.values()) {
+            IdentifierListFilterRepositoryProxy proxy = new IdentifierListFilterRepositoryProxy(identifierListFilterRepository, storageMode);
+            UUID filterId = UUID.randomUUID();
+            identifierListFilter.setId(filterId);
+            proxy.insert(identifierListFilter);
+
+            // both formats give back the same equipments, in the same order
+            for (AbstractFilter foundFilter : List.of(proxy.getFilter(filterId).orElseThrow(), proxy.getFilters(List.of(filterId)).get(0))) {
+                List<IdentifierListFilterEquipmentAttributes> foundEquipmentsAttributes = ((IdentifierListFilter) foundFilter).getFilterEquipmentsAttributes();
+                assertEquals(equipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getEquipmentID).toList(),
+                        foundEquipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getEquipmentID).toList());
+                assertEquals(equipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getDistributionKey).toList(),
+                        foundEquipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getDistributionKey).toList());
+            }
+            assertEquals(storageMode == IdentifierListStorageMode.ARRAYS,
+                    identifierListFilterRepository.findAllWithEquipmentsByIdIn(List.of(filterId)).get(0).getFilterEquipmentEntityList().isEmpty());
+
+            // a copy made inside the database keeps the equipments and their order
+            UUID copyId = UUID.randomUUID();
+            proxy.copyAll(Map.of(filterId, copyId));
+            List<IdentifierListFilterEquipmentAttributes> copiedEquipmentsAttributes = ((IdentifierListFilter) proxy.getFilter(copyId).orElseThrow()).getFilterEquipmentsAttributes();
+            assertEquals(equipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getEquipmentID).toList(),
+                    copiedEquipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getEquipmentID).toList());
+            assertEquals(equipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getDistributionKey).toList(),
+                    copiedEquipmentsAttributes.stream().map(IdentifierListFilterEquipmentAttributes::getDistributionKey).toList());
+        }
+    }
+
+    @Test
+    public void testCopyOnWriteDuplicates() throws Exception {
+        UUID expertFilterId = UUID.randomUUID();
+        List<AbstractExpertRule> rules = new ArrayList<>();
+        createExpertLineRules(rules, COUNTRIES1, COUNTRIES2, new TreeSet<>(Set.of(5., 8.)), new TreeSet<>(Set.of(6.)));
+        ExpertFilter expertFilter = new ExpertFilter(expertFilterId, new Date(), EquipmentType.LINE,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build());
+        insertFilter(expertFilterId, expertFilter);
+        UUID identifierListFilterId = UUID.randomUUID();
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d), new IdentifierListFilterEquipmentAttributes("GEN2", 2d)));
+        insertFilter(identifierListFilterId, identifierListFilter);
+
+        // the duplicates, and the duplicates of a duplicate, share the bodies of the original filters
+        Map<UUID, UUID> newIdsBySourceId = duplicateFilters(List.of(expertFilterId, identifierListFilterId));
+        UUID expertCopyId = newIdsBySourceId.get(expertFilterId);
+        UUID identifierListCopyId = newIdsBySourceId.get(identifierListFilterId);
+        UUID expertCopyOfCopyId = duplicateFilter(expertCopyId);
+        for (UUID copyId : List.of(expertCopyId, expertCopyOfCopyId)) {
+            ExpertFilterEntity copyEntity = expertFilterRepository.findById(copyId).orElseThrow();
+            assertEquals(expertFilterId, copyEntity.getSharedBodyId());
+            assertNull(copyEntity.getRulesDocument());
+            assertTrue(expertFilterRepository.findRuleTreesByFilterIdIn(List.of(copyId)).isEmpty());
+            expertFilter.setId(copyId);
+            checkExpertFilter(copyId, expertFilter);
+        }
+        assertTrue(identifierListFilterRepository.findAllWithEquipmentsByIdIn(List.of(identifierListCopyId)).get(0).getFilterEquipmentEntityList().isEmpty());
+        identifierListFilter.setId(identifierListCopyId);
+        checkIdentifierListFilter(identifierListCopyId, identifierListFilter);
+
+        // modifying the original hands its rules over to one of the copies
+        List<AbstractExpertRule> newRules = new ArrayList<>();
+        createExpertLineRules(newRules, COUNTRIES2, COUNTRIES1, new TreeSet<>(Set.of(4., 9.)), new TreeSet<>(Set.of(5.)));
+        ExpertFilter modifiedExpertFilter = new ExpertFilter(null, new Date(), EquipmentType.LINE,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(newRules).build());
+        updateFilter(expertFilterId, modifiedExpertFilter, "userId");
+        modifiedExpertFilter.setId(expertFilterId);
+        checkExpertFilter(expertFilterId, modifiedExpertFilter);
+        assertNull(expertFilterRepository.findById(expertFilterId).orElseThrow().getSharedBodyId());
+        List<UUID> expertCopyOwners = Stream.of(expertCopyId, expertCopyOfCopyId)
+                .map(copyId -> expertFilterRepository.findById(copyId).orElseThrow().getSharedBodyId())
+                .toList();
+        UUID heirId = expertCopyOwners.contains(expertCopyId) ? expertCopyId : expertCopyOfCopyId;
+        assertTrue(expertCopyOwners.contains(null));
+        assertTrue(expertCopyOwners.contains(heirId));
+        for (UUID copyId : List.of(expertCopyId, expertCopyOfCopyId)) {
+            expertFilter.setId(copyId);
+            checkExpertFilter(copyId, expertFilter);
+        }
+
+        // modifying a copy materializes its own equipments, leaving the original ones untouched
+        IdentifierListFilter modifiedIdentifierListFilter = new IdentifierListFilter(null, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN3", 3d)));
+        updateFilter(identifierListCopyId, modifiedIdentifierListFilter, "userId");
+        modifiedIdentifierListFilter.setId(identifierListCopyId);
+        checkIdentifierListFilter(identifierListCopyId, modifiedIdentifierListFilter);
+        identifierListFilter.setId(identifierListFilterId);
+        checkIdentifierListFilter(identifierListFilterId, identifierListFilter);
+
+        // deleting the owner of shared rules hands them over to the remaining copy
+        UUID remainingCopyId = heirId.equals(expertCopyId) ? expertCopyOfCopyId : expertCopyId;
+        deleteFilter(heirId);
+        expertFilter.setId(remainingCopyId);
+        checkExpertFilter(remainingCopyId, expertFilter);
+        assertNull(expertFilterRepository.findById(remainingCopyId).orElseThrow().getSharedBodyId());
+
+        // an original deleted along with some of its copies hands its equipments over to a surviving one
+        UUID secondIdentifierListCopyId = duplicateFilter(identifierListFilterId);
+        UUID thirdIdentifierListCopyId = duplicateFilter(identifierListFilterId);
+        deleteFilters(List.of(identifierListFilterId, secondIdentifierListCopyId));
+        identifierListFilter.setId(thirdIdentifierListCopyId);
+        checkIdentifierListFilter(thirdIdentifierListCopyId, identifierListFilter);
+
+        deleteFilters(List.of(expertFilterId, remainingCopyId, identifierListCopyId, thirdIdentifierListCopyId));
+        Assertions.assertThat(getAllFilters()).isEmpty();
+    }
+
+    @Test
+    public void testDuplicatedFiltersIndependence() throws Exception {
+        UUID expertFilterId = UUID.randomUUID();
+        List<AbstractExpertRule> rules = new ArrayList<>();
+        createExpertLineRules(rules, COUNTRIES1, COUNTRIES2, new TreeSet<>(Set.of(5., 8.)), new TreeSet<>(Set.of(6.)));
+        ExpertFilter expertFilter = new ExpertFilter(expertFilterId, new Date(), EquipmentType.LINE,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build());
+        UUID identifierListFilterId = UUID.randomUUID();
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d), new IdentifierListFilterEquipmentAttributes("GEN2", 2d)));
+        UUID scriptFilterId = UUID.randomUUID();
+        ScriptFilter scriptFilter = new ScriptFilter(scriptFilterId, new Date(), "script");
+        filterService.createFilters(List.of(expertFilter, identifierListFilter, scriptFilter));
+
+        // the sources are modified in place after being duplicated
+        UUID expertCopyId = duplicateFilter(expertFilterId);
+        List<AbstractExpertRule> modifiedRules = new ArrayList<>();
+        createExpertLineRules(modifiedRules, COUNTRIES2, COUNTRIES1, new TreeSet<>(Set.of(4., 9.)), new TreeSet<>(Set.of(5.)));
+        ExpertFilter modifiedExpertFilter = new ExpertFilter(expertFilterId, new Date(), EquipmentType.LINE,
+                CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(modifiedRules).build());
+        updateFilter(expertFilterId, modifiedExpertFilter, "userId");
+        checkExpertFilter(expertFilterId, modifiedExpertFilter);
+        expertFilter.setId(expertCopyId);
+        checkExpertFilter(expertCopyId, expertFilter);
+
+        UUID identifierListCopyId = duplicateFilter(identifierListFilterId);
+        patchIdentifierListFilter(identifierListFilterId, IdentifierListFilterPatch.builder()
+                .addedOrUpdatedEquipments(List.of(new IdentifierListFilterEquipmentAttributes("GEN", 3d)))
+                .removedEquipmentIds(List.of("GEN2"))
+                .build(), "userId");
+        checkIdentifierListFilter(identifierListFilterId, new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 3d))));
+        identifierListFilter.setId(identifierListCopyId);
+        checkIdentifierListFilter(identifierListCopyId, identifierListFilter);
+
+        UUID scriptCopyId = duplicateFilter(scriptFilterId);
+        updateFilter(scriptFilterId, new ScriptFilter(scriptFilterId, new Date(), "modified script"), "userId");
+        assertEquals("modified script", ((ScriptFilter) filterService.getFilter(scriptFilterId).orElseThrow()).getScript());
+        assertEquals("script", ((ScriptFilter) filterService.getFilter(scriptCopyId).orElseThrow()).getScript());
+
+        // and a modified copy leaves its source untouched
+        ExpertFilter modifiedCopy = new ExpertFilter(expertCopyId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(1, "north"));
+        updateFilter(expertCopyId, modifiedCopy, "userId");
+        checkExpertFilter(expertCopyId, modifiedCopy);
+        checkExpertFilter(expertFilterId, modifiedExpertFilter);
+    }
+
+    @Test
+    public void testUpdateExpertRulesInPlace() throws Exception {
+        UUID filterId = UUID.randomUUID();
+        ExpertFilter expertFilter = new ExpertFilter(filterId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(2000., "north"));
+        insertFilter(filterId, expertFilter);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        // a single threshold changed only updates its rule and the filter
+        ExpertFilter modifiedExpertFilter = new ExpertFilter(null, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(2500., "north"));
+        filterService.updateFilter(filterId, modifiedExpertFilter, null);
+        long insertsForOneThreshold = statistics.getEntityInsertCount();
+        long deletesForOneThreshold = statistics.getEntityDeleteCount();
+        long updatesForOneThreshold = statistics.getEntityUpdateCount();
+        statistics.setStatisticsEnabled(false);
+        assertEquals(0, insertsForOneThreshold);
+        assertEquals(0, deletesForOneThreshold);
+        assertEquals(2, updatesForOneThreshold);
+        modifiedExpertFilter.setId(filterId);
+        checkExpertFilter(filterId, modifiedExpertFilter);
+
+        // rules removed, added and changed in a nested combinator and in a properties rule
+        CombinatorExpertRule rules = createLargeExpertRules(2500., "south");
+        rules.getRules().remove(0);
+        ((CombinatorExpertRule) rules.getRules().get(rules.getRules().size() - 2)).getRules()
+                .add(StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("GEN").build());
+        rules.getRules().add(BooleanExpertRule.builder().field(FieldType.VOLTAGE_REGULATOR_ON).operator(OperatorType.EQUALS).value(true).build());
+        ExpertFilter lastExpertFilter = new ExpertFilter(null, new Date(), EquipmentType.LOAD, rules);
+        filterService.updateFilter(filterId, lastExpertFilter, null);
+        lastExpertFilter.setId(filterId);
+        checkExpertFilter(filterId, lastExpertFilter);
+    }
+
+    @Test
+    public void testExpertRulesOrder() throws Exception {
+        // the ids of the rules are random, so their order does not follow the order of the children
+        List<AbstractExpertRule> rules = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rules.add(NumberExpertRule.builder().field(FieldType.MAX_P).operator(OperatorType.NOT_EQUALS).value((double) i).build());
+        }
+        rules.add(buildCombinatorRule(CombinatorType.OR,
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("C").build(),
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("A").build(),
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("B").build()));
+        UUID filterId = UUID.randomUUID();
+        ExpertFilter expertFilter = new ExpertFilter(filterId, new Date(), EquipmentType.GENERATOR, buildCombinatorRule(CombinatorType.AND, rules.toArray(AbstractExpertRule[]::new)));
+        insertFilter(filterId, expertFilter);
+        checkExpertRulesOrder(filterId, rules);
+
+        // reordered, removed and added children are read back in the given order
+        List<AbstractExpertRule> modifiedRules = new ArrayList<>(rules.subList(1, 20));
+        Collections.reverse(modifiedRules);
+        modifiedRules.add(5, NumberExpertRule.builder().field(FieldType.TARGET_P).operator(OperatorType.GREATER).value(10.).build());
+        modifiedRules.add(0, buildCombinatorRule(CombinatorType.OR,
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("B").build(),
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("C").build(),
+                StringExpertRule.builder().field(FieldType.NAME).operator(OperatorType.CONTAINS).value("A").build()));
+        updateFilter(filterId, new ExpertFilter(null, new Date(), EquipmentType.GENERATOR, buildCombinatorRule(CombinatorType.AND, modifiedRules.toArray(AbstractExpertRule[]::new))), "userId");
+        checkExpertRulesOrder(filterId, modifiedRules);
+    }
+
+    private void checkExpertRulesOrder(UUID filterId, List<AbstractExpertRule> expectedRules) throws Exception {
+        List<ExpertFilter> foundFilters = List.of(
+                objectMapper.readValue(mvc.perform(get(URL_TEMPLATE + "/" + filterId)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString(), ExpertFilter.class),
+                (ExpertFilter) filterService.getFilters(List.of(filterId)).get(0));
+        for (ExpertFilter foundFilter : foundFilters) {
+            assertEquals(objectMapper.writeValueAsString(expectedRules), objectMapper.writeValueAsString(foundFilter.getRules().getRules()));
+        }
+    }
+
+    private static CombinatorExpertRule createLargeExpertRules(double lastThreshold, String propertyValue) {
+        List<AbstractExpertRule> rules = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rules.add(NumberExpertRule.builder().field(FieldType.MAX_P).operator(OperatorType.NOT_EQUALS).value((double) i).build());
+        }
+        List<AbstractExpertRule> orRules = new ArrayList<>();
+        orRules.add(NumberExpertRule.builder().field(FieldType.TARGET_P).operator(OperatorType.GREATER).value(lastThreshold).build());
+        orRules.add(EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.IN).values(new TreeSet<>(Set.of("FR", "BE"))).build());
+        rules.add(CombinatorExpertRule.builder().combinator(CombinatorType.OR).rules(orRules).build());
+        rules.add(PropertiesExpertRule.builder().field(FieldType.FREE_PROPERTIES).operator(OperatorType.IN)
+                .propertyName("region").propertyValues(List.of(propertyValue, "east")).build());
+        return CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build();
+    }
+
+    @Test
+    public void testPatchIdentifierListFilter() throws Exception {
+        UUID filterId = UUID.randomUUID();
+        List<IdentifierListFilterEquipmentAttributes> equipmentsAttributes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            equipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes("GEN" + i, (double) i));
+        }
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR, equipmentsAttributes);
+        insertFilter(filterId, identifierListFilter);
+        UUID copyId = duplicateFilter(filterId);
+
+        // removals first, then distribution keys changed in place and new equipments appended
+        IdentifierListFilterPatch patch = IdentifierListFilterPatch.builder()
+                .addedOrUpdatedEquipments(List.of(new IdentifierListFilterEquipmentAttributes("GEN5", 50d),
+                        new IdentifierListFilterEquipmentAttributes("GEN100", null),
+                        new IdentifierListFilterEquipmentAttributes("GEN7", 70d)))
+                .removedEquipmentIds(List.of("GEN1", "GEN7", "UNKNOWN"))
+                .build();
+        List<IdentifierListFilterEquipmentAttributes> patchedEquipmentsAttributes = new ArrayList<>(equipmentsAttributes);
+        patchedEquipmentsAttributes.removeIf(equipment -> equipment.getEquipmentID().equals("GEN1") || equipment.getEquipmentID().equals("GEN7"));
+        patchedEquipmentsAttributes.set(4, new IdentifierListFilterEquipmentAttributes("GEN5", 50d));
+        patchedEquipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes("GEN100", null));
+        patchedEquipmentsAttributes.add(new IdentifierListFilterEquipmentAttributes("GEN7", 70d));
+
+        // the filter shares its equipments with its copy, which keeps the original ones
+        patchIdentifierListFilter(filterId, patch, "userId");
+        checkIdentifierListFilter(filterId, new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR, patchedEquipmentsAttributes));
+        identifierListFilter.setId(copyId);
+        checkIdentifierListFilter(copyId, identifierListFilter);
+
+        // the filter now owns its equipments, only the affected rows are written
+        patchIdentifierListFilter(filterId, IdentifierListFilterPatch.builder()
+                .removedEquipmentIds(List.of("GEN100")).build(), "userId");
+        patchedEquipmentsAttributes.remove(patchedEquipmentsAttributes.size() - 2);
+        checkIdentifierListFilter(filterId, new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR, patchedEquipmentsAttributes));
+        patchIdentifierListFilter(copyId, patch, "userId");
+        patchedEquipmentsAttributes.add(patchedEquipmentsAttributes.size() - 1, new IdentifierListFilterEquipmentAttributes("GEN100", null));
+        checkIdentifierListFilter(copyId, new IdentifierListFilter(copyId, new Date(), EquipmentType.GENERATOR, patchedEquipmentsAttributes));
+
+        // the arrays are patched as a whole
+        IdentifierListFilterRepositoryProxy arraysProxy = new IdentifierListFilterRepositoryProxy(identifierListFilterRepository, IdentifierListStorageMode.ARRAYS);
+        UUID arraysFilterId = UUID.randomUUID();
+        arraysProxy.insert(new IdentifierListFilter(arraysFilterId, new Date(), EquipmentType.GENERATOR, equipmentsAttributes));
+        transactionTemplate.executeWithoutResult(status -> arraysProxy.patch(arraysFilterId, patch));
+        matchIdentifierListFilterInfos((IdentifierListFilter) arraysProxy.getFilter(arraysFilterId).orElseThrow(),
+                new IdentifierListFilter(arraysFilterId, new Date(), EquipmentType.GENERATOR, patchedEquipmentsAttributes));
+
+        // only identifier list filters can be patched
+        ExpertFilter expertFilter = new ExpertFilter(null, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(1., "north"));
+        UUID expertFilterId = UUID.randomUUID();
+        insertFilter(expertFilterId, expertFilter);
+        mvc.perform(patch(URL_TEMPLATE + "/" + expertFilterId)
+                        .content(objectMapper.writeValueAsString(patch))
+                        .contentType(APPLICATION_JSON)
+                        .header(USER_ID_HEADER, "userId"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(patch(URL_TEMPLATE + "/" + UUID.randomUUID())
+                        .content(objectMapper.writeValueAsString(patch))
+                        .contentType(APPLICATION_JSON)
+                        .header(USER_ID_HEADER, "userId"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testBulkDelete() throws Exception {
+        Map<String, Long> initialRowCounts = countFilterRows();
+
+        // reference: the derived deletes, cascading through the loaded entities
+        List<UUID> referenceFilterIds = createFiltersToDelete();
+        Map<String, Long> createdRowCounts = countFilterRows();
+        transactionTemplate.executeWithoutResult(status -> {
+            expertFilterRepository.deleteAllByIdIn(referenceFilterIds);
+            identifierListFilterRepository.deleteAllByIdIn(referenceFilterIds);
+        });
+        assertEquals(initialRowCounts, countFilterRows());
+
+        // the bulk delete leaves the same rows, and reports the filters which existed, whatever chunk they are in
+        List<UUID> filterIds = createFiltersToDelete();
+        assertEquals(createdRowCounts, countFilterRows());
+        List<UUID> requestedIds = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            requestedIds.add(UUID.randomUUID());
+        }
+        requestedIds.addAll(1200, filterIds);
+        String response = mvc.perform(delete(URL_TEMPLATE)
+                        .content(objectMapper.writeValueAsString(requestedIds))
+                        .contentType(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<UUID> deletedIds = objectMapper.readValue(response, new TypeReference<>() { });
+        assertEquals(new HashSet<>(filterIds), new HashSet<>(deletedIds));
+        assertEquals(initialRowCounts, countFilterRows());
+        Assertions.assertThat(getAllFilters()).isEmpty();
+
+        // the bodies shared with duplicates survive the bulk delete of their owners
+        filterIds = createFiltersToDelete();
+        Map<UUID, UUID> newIdsBySourceId = duplicateFilters(filterIds);
+        List<AbstractFilter> sourceFilters = filterService.getFilters(filterIds);
+        deleteFilters(filterIds);
+        for (AbstractFilter sourceFilter : sourceFilters) {
+            UUID copyId = newIdsBySourceId.get(sourceFilter.getId());
+            if (sourceFilter instanceof ExpertFilter expertFilter) {
+                checkExpertFilter(copyId, new ExpertFilter(copyId, expertFilter.getModificationDate(), expertFilter.getEquipmentType(), expertFilter.getRules()));
+            } else {
+                IdentifierListFilter identifierListFilter = (IdentifierListFilter) sourceFilter;
+                checkIdentifierListFilter(copyId, new IdentifierListFilter(copyId, identifierListFilter.getModificationDate(),
+                        identifierListFilter.getEquipmentType(), identifierListFilter.getFilterEquipmentsAttributes()));
+            }
+        }
+        deleteFilters(new ArrayList<>(newIdsBySourceId.values()));
+        assertEquals(initialRowCounts, countFilterRows());
+    }
+
+    @Test
+    public void testFilterCache() throws Exception {
+        UUID expertFilterId = UUID.randomUUID();
+        ExpertFilter expertFilter = new ExpertFilter(expertFilterId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(1, "north"));
+        UUID identifierListFilterId = UUID.randomUUID();
+        IdentifierListFilter identifierListFilter = new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d)));
+        filterService.createFilters(List.of(expertFilter, identifierListFilter));
+
+        // the second read only checks the modification dates
+        double hits = getCacheGets("hit");
+        double misses = getCacheGets("miss");
+        checkExpertFilter(expertFilterId, expertFilter);
+        checkIdentifierListFilter(identifierListFilterId, identifierListFilter);
+        assertEquals(misses + 2, getCacheGets("miss"), 0);
+        checkExpertFilter(expertFilterId, expertFilter);
+        assertEquals(2, filterService.getFilters(List.of(expertFilterId, identifierListFilterId)).size());
+        assertEquals(hits + 3, getCacheGets("hit"), 0);
+        assertEquals(misses + 2, getCacheGets("miss"), 0);
+
+        // an update is seen at once and sent to the other instances
+        ExpertFilter updatedExpertFilter = new ExpertFilter(expertFilterId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(2, "south"));
+        updateFilter(expertFilterId, updatedExpertFilter, "userId");
+        Message<byte[]> message = output.receive(TIMEOUT, filterInvalidationDestination);
+        assertEquals(expertFilterId.toString(), new String(message.getPayload()));
+        checkExpertFilter(expertFilterId, updatedExpertFilter);
+
+        // a filter modified by another instance is reloaded as its modification date changed
+        jdbcTemplate.update("UPDATE identifier_list_filter SET equipment_type = 'LOAD' WHERE id = ?", identifierListFilterId);
+        checkIdentifierListFilter(identifierListFilterId, identifierListFilter);
+        jdbcTemplate.update("UPDATE identifier_list_filter SET modification_date = ? WHERE id = ?", new Timestamp(System.currentTimeMillis() + 1000), identifierListFilterId);
+        assertEquals(EquipmentType.LOAD, ((IdentifierListFilter) filterService.getFilter(identifierListFilterId).orElseThrow()).getEquipmentType());
+
+        // and dropped when its invalidation is received
+        int cacheSize = filterCache.size();
+        input.send(MessageBuilder.withPayload(identifierListFilterId.toString()).build(), filterInvalidationDestination);
+        assertEquals(cacheSize - 1, filterCache.size());
+        // the test binder also delivers the received message to the output destination
+        output.clear();
+
+        deleteFilters(List.of(expertFilterId, identifierListFilterId));
+        message = output.receive(TIMEOUT, filterInvalidationDestination);
+        assertEquals(Set.of(expertFilterId.toString(), identifierListFilterId.toString()),
+                Set.of(new String(message.getPayload()).split(",")));
+        assertEquals(cacheSize - 2, filterCache.size());
+
+        // the invalidations are sent once the deletion is committed, in messages of bounded size
+        List<AbstractFilter> manyFilters = Stream.generate(() -> (AbstractFilter) new IdentifierListFilter(UUID.randomUUID(), new Date(),
+                        EquipmentType.GENERATOR, List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d))))
+                .limit(NotificationService.INVALIDATED_FILTERS_CHUNK_SIZE + 1L)
+                .toList();
+        filterService.createFilters(manyFilters);
+        List<UUID> manyFilterIds = manyFilters.stream().map(AbstractFilter::getId).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            filterService.deleteFilters(manyFilterIds);
+            assertNull(output.receive(0, filterInvalidationDestination));
+        });
+        Set<String> invalidatedIds = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            message = output.receive(TIMEOUT, filterInvalidationDestination);
+            invalidatedIds.addAll(List.of(new String(message.getPayload()).split(",")));
+        }
+        assertEquals(manyFilterIds.stream().map(UUID::toString).collect(Collectors.toSet()), invalidatedIds);
+        assertNull(output.receive(0, filterInvalidationDestination));
+
+        // the least recently used filters are evicted
+        SimpleMeterRegistry simpleMeterRegistry = new SimpleMeterRegistry();
+        FilterCache smallFilterCache = new FilterCache(simpleMeterRegistry, 2);
+        smallFilterCache.putAll(List.of(expertFilter, identifierListFilter));
+        assertTrue(smallFilterCache.get(expertFilterId, expertFilter.getModificationDate()).isPresent());
+        smallFilterCache.putAll(List.of(new ExpertFilter(UUID.randomUUID(), new Date(), EquipmentType.GENERATOR, updatedExpertFilter.getRules())));
+        assertEquals(2, smallFilterCache.size());
+        assertTrue(smallFilterCache.get(identifierListFilterId, identifierListFilter.getModificationDate()).isEmpty());
+        assertTrue(smallFilterCache.get(expertFilterId, new Date(0)).isEmpty());
+        assertEquals(1, simpleMeterRegistry.get("cache.evictions").counter().count(), 0);
+        assertEquals(1, simpleMeterRegistry.get("cache.gets").tag("result", "hit").counter().count(), 0);
+    }
+
+    @Test
+    public void testConditionalGets() throws Exception {
+        UUID filterId = UUID.randomUUID();
+        ExpertFilter expertFilter = new ExpertFilter(filterId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(1, "north"));
+        UUID otherFilterId = UUID.randomUUID();
+        filterService.createFilters(List.of(expertFilter, new IdentifierListFilter(otherFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", 1d)))));
+
+        MockHttpServletResponse response = mvc.perform(get(URL_TEMPLATE + "/" + filterId)).andExpect(status().isOk()).andReturn().getResponse();
+        String eTag = response.getHeader(HttpHeaders.ETAG);
+        String lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        assertNotNull(eTag);
+        assertNotNull(lastModified);
+
+        // a cached filter is read with its metadata only
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId)).andExpect(status().isOk()).andExpect(header().string(HttpHeaders.ETAG, eTag));
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        // not modified, answered without loading the filter
+        statistics.clear();
+        double cacheGets = getCacheGets("hit") + getCacheGets("miss");
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(cacheGets, getCacheGets("hit") + getCacheGets("miss"), 0);
+        statistics.setStatisticsEnabled(false);
+
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId).header(HttpHeaders.IF_NONE_MATCH, "\"" + filterId + "-0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        mvc.perform(get(URL_TEMPLATE + "/" + UUID.randomUUID()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotFound());
+
+        // the list of metadata is tagged as a whole
+        String[] ids = {filterId.toString(), otherFilterId.toString()};
+        String metadataETag = mvc.perform(get(URL_TEMPLATE + "/metadata").param("ids", ids))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(get(URL_TEMPLATE + "/metadata").param("ids", ids).header(HttpHeaders.IF_NONE_MATCH, metadataETag))
+                .andExpect(status().isNotModified());
+
+        // a modification changes both tags
+        updateFilter(filterId, new ExpertFilter(filterId, new Date(), EquipmentType.GENERATOR, createLargeExpertRules(2, "north")), "userId");
+        String newETag = mvc.perform(get(URL_TEMPLATE + "/" + filterId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+        String modifiedMetadataETag = mvc.perform(get(URL_TEMPLATE + "/metadata").param("ids", ids).header(HttpHeaders.IF_NONE_MATCH, metadataETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(metadataETag)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // so does a deletion, which leaves the last modification date of the list unchanged
+        deleteFilter(otherFilterId);
+        mvc.perform(get(URL_TEMPLATE + "/metadata").param("ids", ids).header(HttpHeaders.IF_NONE_MATCH, modifiedMetadataETag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(modifiedMetadataETag)))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void testNetworkCache() throws Exception {
+        UUID filterId = UUID.randomUUID();
+        insertFilter(filterId, new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null), new IdentifierListFilterEquipmentAttributes("GEN2", null))));
+        String allGenerators = "[{\"id\":\"GEN\",\"type\":\"GENERATOR\"},{\"id\":\"GEN2\",\"type\":\"GENERATOR\"}]";
+        String variantGenerators = "[{\"id\":\"GEN\",\"type\":\"GENERATOR\"}]";
+
+        // the network is loaded once, each request selecting its own variant
+        checkFilterExport(filterId, null, allGenerators);
+        checkFilterExport(filterId, VARIANT_ID_1, variantGenerators);
+        checkFilterExport(filterId, null, allGenerators);
+        verify(networkStoreService, times(1)).getNetwork(NETWORK_UUID, PreloadingStrategy.COLLECTION);
+
+        // until it is invalidated, on every instance
+        mvc.perform(delete("/" + FilterApi.API_VERSION + "/networks/" + NETWORK_UUID + "/cache")).andExpect(status().isOk());
+        Message<byte[]> message = output.receive(TIMEOUT, filterInvalidationDestination);
+        assertEquals(NETWORK_UUID.toString(), message.getHeaders().get(NotificationService.HEADER_NETWORK_UUID));
+        checkFilterExport(filterId, VARIANT_ID_1, variantGenerators);
+        verify(networkStoreService, times(2)).getNetwork(NETWORK_UUID, PreloadingStrategy.COLLECTION);
+
+        // a leased network is not shared, the concurrent requests get their own instance
+        Network otherNetwork = EurostagTutorialExample1Factory.createWithMoreGenerators(new NetworkFactoryImpl());
+        given(networkStoreService.getNetwork(NETWORK_UUID, PreloadingStrategy.COLLECTION)).willReturn(otherNetwork);
+        try (NetworkCache.Lease lease = networkCache.lease(NETWORK_UUID, VARIANT_ID_1)) {
+            assertSame(network, lease.getNetwork());
+            Network concurrentNetwork = CompletableFuture.supplyAsync(() -> {
+                try (NetworkCache.Lease concurrentLease = networkCache.lease(NETWORK_UUID, null)) {
+                    return concurrentLease.getNetwork();
+                }
+            }).get();
+            assertSame(otherNetwork, concurrentNetwork);
+            assertEquals(VARIANT_ID_1, network.getVariantManager().getWorkingVariantId());
+        }
+        try (NetworkCache.Lease lease = networkCache.lease(NETWORK_UUID, null)) {
+            assertSame(network, lease.getNetwork());
+        }
+
+        int cacheSize = networkCache.size();
+        assertThrows(PowsyblException.class, () -> networkCache.lease(NETWORK_NOT_FOUND_UUID, null));
+        assertEquals(cacheSize, networkCache.size());
+
+        // the least recently used networks are evicted
+        NetworkCache smallNetworkCache = new NetworkCache(networkStoreService, new SimpleMeterRegistry(), 1, 1, Duration.ofMinutes(1), 32);
+        for (UUID networkUuid : List.of(NETWORK_UUID_2, NETWORK_UUID_3, NETWORK_UUID_2)) {
+            try (NetworkCache.Lease lease = smallNetworkCache.lease(networkUuid, null)) {
+                assertNotNull(lease.getNetwork());
+            }
+        }
+        assertEquals(1, smallNetworkCache.size());
+        verify(networkStoreService, times(2)).getNetwork(NETWORK_UUID_2, PreloadingStrategy.COLLECTION);
+
+        // disabled by default, each lease loads its own instance
+        NetworkCache disabledNetworkCache = new NetworkCache(networkStoreService, new SimpleMeterRegistry(), 0, 1, Duration.ofMinutes(1), 32);
+        for (int i = 0; i < 2; i++) {
+            try (NetworkCache.Lease lease = disabledNetworkCache.lease(NETWORK_UUID_3, null)) {
+                assertNotNull(lease.getNetwork());
+                // the private instances are evaluated without indexes
+                assertNull(lease.getIndex());
+            }
+        }
+        assertEquals(0, disabledNetworkCache.size());
+        verify(networkStoreService, times(3)).getNetwork(NETWORK_UUID_3, PreloadingStrategy.COLLECTION);
+    }
+
+    @Test
+    public void testEvaluationCache() throws Exception {
+        UUID identifierListFilterId = UUID.randomUUID();
+        insertFilter(identifierListFilterId, new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null))));
+        UUID expertFilterId = UUID.randomUUID();
+        insertFilter(expertFilterId, new ExpertFilter(expertFilterId, new Date(), EquipmentType.GENERATOR, CombinatorExpertRule.builder()
+                .combinator(CombinatorType.AND)
+                .rules(List.of(FilterUuidExpertRule.builder().values(Set.of(identifierListFilterId.toString()))
+                        .field(FieldType.ID).operator(OperatorType.IS_PART_OF).build()))
+                .build()));
+        String gen = "[{\"id\":\"GEN\",\"type\":\"GENERATOR\"}]";
+        String genAndGen2 = "[{\"id\":\"GEN\",\"type\":\"GENERATOR\"},{\"id\":\"GEN2\",\"type\":\"GENERATOR\"}]";
+
+        // the result is reused, without even taking the network
+        double hits = getCacheGets(EvaluationCache.CACHE_NAME, "hit");
+        double misses = getCacheGets(EvaluationCache.CACHE_NAME, "miss");
+        checkFilterExport(expertFilterId, null, gen);
+        double networkGets = getCacheGets(NetworkCache.CACHE_NAME, "hit") + getCacheGets(NetworkCache.CACHE_NAME, "miss");
+        checkFilterExport(expertFilterId, null, gen);
+        assertEquals(networkGets, getCacheGets(NetworkCache.CACHE_NAME, "hit") + getCacheGets(NetworkCache.CACHE_NAME, "miss"), 0);
+        assertEquals(hits + 1, getCacheGets(EvaluationCache.CACHE_NAME, "hit"), 0);
+        assertEquals(misses + 1, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+
+        // for its variant only
+        checkFilterExport(expertFilterId, VARIANT_ID_1, gen);
+        assertEquals(misses + 2, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+
+        // until the referenced filter is modified, here or by another instance
+        patchIdentifierListFilter(identifierListFilterId, IdentifierListFilterPatch.builder()
+                .addedOrUpdatedEquipments(List.of(new IdentifierListFilterEquipmentAttributes("GEN2", null)))
+                .build(), "userId");
+        checkFilterExport(expertFilterId, null, genAndGen2);
+        checkFilterExport(expertFilterId, VARIANT_ID_1, gen);
+        assertEquals(misses + 4, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+        jdbcTemplate.update("UPDATE identifier_list_filter SET modification_date = ? WHERE id = ?", new Timestamp(System.currentTimeMillis() + 1000), identifierListFilterId);
+        checkFilterExport(expertFilterId, null, genAndGen2);
+        assertEquals(misses + 5, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+
+        // or the network is modified
+        checkFilterExport(expertFilterId, null, genAndGen2);
+        assertEquals(misses + 5, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+        mvc.perform(delete("/" + FilterApi.API_VERSION + "/networks/" + NETWORK_UUID + "/cache")).andExpect(status().isOk());
+        checkFilterExport(expertFilterId, null, genAndGen2);
+        assertEquals(misses + 6, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+
+        List<FilterEquipments> filtersEquipments = filterService.exportFilters(List.of(expertFilterId, identifierListFilterId), NETWORK_UUID, null);
+        assertEquals(List.of(expertFilterId, identifierListFilterId), filtersEquipments.stream().map(FilterEquipments::getFilterId).toList());
+        assertEquals(misses + 7, getCacheGets(EvaluationCache.CACHE_NAME, "miss"), 0);
+
+        // the least recently used results are evicted beyond the memory budget
+        SimpleMeterRegistry simpleMeterRegistry = new SimpleMeterRegistry();
+        EvaluationCache smallEvaluationCache = new EvaluationCache(simpleMeterRegistry, DataSize.ofBytes(800), Duration.ofMinutes(1));
+        List<IdentifiableAttributes> identifiableAttributes = List.of(new IdentifiableAttributes("GEN", IdentifiableType.GENERATOR, null),
+                new IdentifiableAttributes("GEN2", IdentifiableType.GENERATOR, null));
+        AbstractFilter filter = filterService.getFilter(identifierListFilterId).orElseThrow();
+        smallEvaluationCache.put(filter, NETWORK_UUID, null, Map.of(), identifiableAttributes);
+        smallEvaluationCache.put(filter, NETWORK_UUID_2, null, Map.of(), identifiableAttributes);
+        assertEquals(1, smallEvaluationCache.size());
+        assertTrue(smallEvaluationCache.get(filter, NETWORK_UUID, null, ids -> Map.of()).isEmpty());
+        assertEquals(identifiableAttributes, smallEvaluationCache.get(filter, NETWORK_UUID_2, VariantManagerConstants.INITIAL_VARIANT_ID, ids -> Map.of()).orElseThrow());
+        assertEquals(1, simpleMeterRegistry.get("cache.evictions").counter().count(), 0);
+
+        // disabled by default
+        EvaluationCache disabledEvaluationCache = new EvaluationCache(new SimpleMeterRegistry(), DataSize.ofBytes(0), Duration.ofMinutes(1));
+        disabledEvaluationCache.put(filter, NETWORK_UUID, null, Map.of(), identifiableAttributes);
+        disabledEvaluationCache.putCount(filter, NETWORK_UUID_2, null, Map.of(), 2);
+        assertEquals(0, disabledEvaluationCache.size());
+        assertTrue(disabledEvaluationCache.get(filter, NETWORK_UUID, null, ids -> Map.of()).isEmpty());
+    }
+
+    @Test
+    public void testFilterLoader() throws Exception {
+        UUID identifierListFilterId = UUID.randomUUID();
+        insertFilter(identifierListFilterId, new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null))));
+        UUID filterId1 = UUID.randomUUID();
+        UUID filterId2 = UUID.randomUUID();
+        UUID filterId3 = UUID.randomUUID();
+        insertFilter(filterId1, buildFilterUuidExpertFilter(filterId1, identifierListFilterId, filterId2));
+        insertFilter(filterId2, buildFilterUuidExpertFilter(filterId2, filterId3));
+        insertFilter(filterId3, buildFilterUuidExpertFilter(filterId3, filterId1));
+        UUID selfReferencingFilterId = UUID.randomUUID();
+        insertFilter(selfReferencingFilterId, buildFilterUuidExpertFilter(selfReferencingFilterId, selfReferencingFilterId));
+        UUID filterId = UUID.randomUUID();
+        insertFilter(filterId, buildFilterUuidExpertFilter(filterId, identifierListFilterId, UUID.randomUUID()));
+
+        // the filters are loaded once per request, including the ones not found
+        FilterLoaderImpl filterLoader = new FilterLoaderImpl(filterService);
+        UUID unknownFilterId = UUID.randomUUID();
+        List<AbstractFilter> filters = filterLoader.getFilters(List.of(identifierListFilterId, unknownFilterId, identifierListFilterId));
+        assertEquals(identifierListFilterId, filters.get(0).getId());
+        assertNull(filters.get(1));
+        assertSame(filters.get(0), filters.get(2));
+        double gets = getCacheGets("hit") + getCacheGets("miss");
+        assertEquals(filters, filterLoader.getFilters(List.of(identifierListFilterId, unknownFilterId, identifierListFilterId)));
+        assertEquals(gets, getCacheGets("hit") + getCacheGets("miss"), 0);
+
+        // and evaluated once
+        List<IdentifiableAttributes> identifiableAttributes = List.of(new IdentifiableAttributes("GEN", IdentifiableType.GENERATOR, null));
+        List<AbstractFilter> evaluatedFilters = new ArrayList<>();
+        Function<AbstractFilter, List<IdentifiableAttributes>> evaluation = f -> {
+            evaluatedFilters.add(f);
+            return identifiableAttributes;
+        };
+        assertSame(identifiableAttributes, filterLoader.evaluate(filters.get(0), evaluation));
+        assertSame(identifiableAttributes, filterLoader.evaluate(filters.get(0), evaluation));
+        assertEquals(List.of(filters.get(0)), evaluatedFilters);
+
+        // the cycles are reported instead of being followed
+        filterLoader.checkReferences(filterService.getFilter(filterId).orElseThrow());
+        PowsyblException e = assertThrows(PowsyblException.class, () -> filterService.exportFilters(List.of(filterId1), NETWORK_UUID, null));
+        assertEquals("Filter reference cycle: " + filterId1 + " -> " + filterId2 + " -> " + filterId3 + " -> " + filterId1, e.getMessage());
+        e = assertThrows(PowsyblException.class, () -> filterService.exportFilter(filterId2, NETWORK_UUID, null));
+        assertEquals("Filter reference cycle: " + filterId2 + " -> " + filterId3 + " -> " + filterId1 + " -> " + filterId2, e.getMessage());
+        e = assertThrows(PowsyblException.class, () -> filterService.exportFilter(selfReferencingFilterId, NETWORK_UUID, null));
+        assertEquals("Filter reference cycle: " + selfReferencingFilterId + " -> " + selfReferencingFilterId, e.getMessage());
+        AbstractFilter postedFilter = buildFilterUuidExpertFilter(null, filterId3);
+        assertThrows(PowsyblException.class, () -> filterService.evaluateFilter(postedFilter, NETWORK_UUID, null));
+    }
+
+    @Test
+    public void testExportFiltersOnNetwork() throws Exception {
+        UUID identifierListFilterId = UUID.randomUUID();
+        insertFilter(identifierListFilterId, new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null))));
+        UUID expertFilterId = UUID.randomUUID();
+        insertFilter(expertFilterId, buildFilterUuidExpertFilter(expertFilterId, identifierListFilterId));
+
+        // the filters are loaded together but exported in the order of the ids, without the ones not found or excluded
+        List<UUID> ids = List.of(expertFilterId, UUID.randomUUID(), identifierListFilterId, expertFilterId);
+        List<FilterEquipments> filtersEquipments = filterService.exportFilters(ids, network, Set.of(), new FilterLoaderImpl(filterService));
+        assertEquals(List.of(expertFilterId, identifierListFilterId, expertFilterId), filtersEquipments.stream().map(FilterEquipments::getFilterId).toList());
+        filtersEquipments.forEach(filterEquipments -> assertEquals(List.of("GEN"),
+                filterEquipments.getIdentifiableAttributes().stream().map(IdentifiableAttributes::getId).toList()));
+        filtersEquipments = filterService.exportFilters(ids, network, Set.of(FilterType.IDENTIFIER_LIST), new FilterLoaderImpl(filterService));
+        assertEquals(List.of(expertFilterId, expertFilterId), filtersEquipments.stream().map(FilterEquipments::getFilterId).toList());
+    }
+
+    @Test
+    public void testParallelEvaluation() throws Exception {
+        UUID networkUuid = UUID.randomUUID();
+        given(networkStoreService.getNetwork(networkUuid, PreloadingStrategy.COLLECTION))
+                .willAnswer(invocation -> EurostagTutorialExample1Factory.createWithMoreGenerators(new NetworkFactoryImpl()));
+        List<UUID> ids = new ArrayList<>();
+        for (String generatorId : List.of("GEN", "GEN2", "GEN", "GEN2", "GEN", "GEN2")) {
+            UUID filterId = UUID.randomUUID();
+            insertFilter(filterId, new IdentifierListFilter(filterId, new Date(), EquipmentType.GENERATOR,
+                    List.of(new IdentifierListFilterEquipmentAttributes(generatorId, null))));
+            ids.add(filterId);
+        }
+        ids.add(ids.get(0));
+        ids.add(1, UUID.randomUUID());
+
+        // the filters are evaluated once each and returned in the order of the ids, the cold network is only loaded
+        // once: with one cached instance per network, the other tasks do not load a private one
+        long evaluations = getEvaluationCount(FilterType.IDENTIFIER_LIST);
+        List<FilterEquipments> filtersEquipments = filterService.exportFilters(ids, networkUuid, null);
+        assertEquals(ids.stream().filter(id -> !id.equals(ids.get(1))).toList(), filtersEquipments.stream().map(FilterEquipments::getFilterId).toList());
+        assertEquals(List.of("GEN", "GEN2", "GEN", "GEN2", "GEN", "GEN2", "GEN"), filtersEquipments.stream()
+                .map(filterEquipments -> filterEquipments.getIdentifiableAttributes().get(0).getId())
+                .toList());
+        assertEquals(evaluations + 6, getEvaluationCount(FilterType.IDENTIFIER_LIST));
+        assertEquals(Map.of("group1", 3L, "group2", 2L), filterService.getIdentifiablesCountByGroup(
+                IdsByGroup.builder().ids(Map.of("group1", List.of(ids.get(0), ids.get(2), ids.get(3), ids.get(0)), "group2", List.of(ids.get(4), ids.get(5)))).build(),
+                networkUuid, null));
+        verify(networkStoreService, times(1)).getNetwork(networkUuid, PreloadingStrategy.COLLECTION);
+
+        // an error in a task is reported as is
+        PowsyblException e = assertThrows(PowsyblException.class, () -> filterService.exportFilters(ids, NETWORK_NOT_FOUND_UUID, null));
+        assertEquals("Network '" + NETWORK_NOT_FOUND_UUID + "' not found", e.getMessage());
+
+        // the instances of the network loaded for the concurrent leases are kept for the next ones
+        NetworkCache pooledNetworkCache = new NetworkCache(networkStoreService, new SimpleMeterRegistry(), 1, 2, Duration.ofMinutes(1), 32);
+        UUID otherNetworkUuid = UUID.randomUUID();
+        given(networkStoreService.getNetwork(otherNetworkUuid, PreloadingStrategy.COLLECTION))
+                .willAnswer(invocation -> EurostagTutorialExample1Factory.createWithMoreGenerators(new NetworkFactoryImpl()));
+        Set<Network> networks = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            try (NetworkCache.Lease lease1 = pooledNetworkCache.lease(otherNetworkUuid, null);
+                 NetworkCache.Lease lease2 = pooledNetworkCache.lease(otherNetworkUuid, null)) {
+                assertNotSame(lease1.getNetwork(), lease2.getNetwork());
+                networks.add(lease1.getNetwork());
+                networks.add(lease2.getNetwork());
+            }
+        }
+        assertEquals(2, networks.size());
+        verify(networkStoreService, times(2)).getNetwork(otherNetworkUuid, PreloadingStrategy.COLLECTION);
+
+        // an optional lease only gets a free cached instance, released even if it has not been used
+        try (NetworkCache.Lease lease1 = pooledNetworkCache.tryLazyLease(otherNetworkUuid, null).orElseThrow();
+             NetworkCache.Lease lease2 = pooledNetworkCache.tryLazyLease(otherNetworkUuid, null).orElseThrow()) {
+            assertTrue(pooledNetworkCache.tryLazyLease(otherNetworkUuid, null).isEmpty());
+            assertTrue(networks.contains(lease1.getNetwork()));
+        }
+        try (NetworkCache.Lease lease1 = pooledNetworkCache.tryLazyLease(otherNetworkUuid, null).orElseThrow();
+             NetworkCache.Lease lease2 = pooledNetworkCache.tryLazyLease(otherNetworkUuid, null).orElseThrow()) {
+            assertTrue(networks.containsAll(List.of(lease1.getNetwork(), lease2.getNetwork())));
+        }
+        assertTrue(new NetworkCache(networkStoreService, new SimpleMeterRegistry(), 0, 2, Duration.ofMinutes(1), 32)
+                .tryLazyLease(otherNetworkUuid, null).isEmpty());
+        verify(networkStoreService, times(2)).getNetwork(otherNetworkUuid, PreloadingStrategy.COLLECTION);
+        // so the evaluation threads are not even created with a single cached instance per network, as configured here
+        assertFalse(applicationContext.containsBean(FilterEvaluationConfig.FILTER_EVALUATION_EXECUTOR));
+    }
+
+    @Test
+    public void testIdentifiablesCountByGroup() throws Exception {
+        UUID filterId1 = UUID.randomUUID();
+        insertFilter(filterId1, new IdentifierListFilter(filterId1, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null), new IdentifierListFilterEquipmentAttributes("GEN2", null))));
+        UUID filterId2 = UUID.randomUUID();
+        insertFilter(filterId2, buildFilterUuidExpertFilter(filterId2, filterId1));
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>(Map.of(
+                "networkUuid", List.of(NETWORK_UUID.toString()),
+                "ids[g1]", List.of(filterId1.toString(), filterId2.toString()),
+                "ids[g2]", List.of(filterId1.toString()),
+                "ids[g3]", List.of(filterId2.toString(), UUID.randomUUID().toString(), filterId2.toString())
+        ));
+
+        // each filter is evaluated once for all the groups
+        long evaluations = getEvaluationCount(FilterType.IDENTIFIER_LIST) + getEvaluationCount(FilterType.EXPERT);
+        mvc.perform(get(URL_TEMPLATE + "/identifiables-count").params(params))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"g1\":4,\"g2\":2,\"g3\":2}", true));
+        assertEquals(evaluations + 2, getEvaluationCount(FilterType.IDENTIFIER_LIST) + getEvaluationCount(FilterType.EXPERT));
+
+        // and its count is reused by the next requests
+        mvc.perform(get(URL_TEMPLATE + "/identifiables-count").params(params))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"g1\":4,\"g2\":2,\"g3\":2}", true));
+        assertEquals(evaluations + 2, getEvaluationCount(FilterType.IDENTIFIER_LIST) + getEvaluationCount(FilterType.EXPERT));
+
+        // but only counted, the identifiables are evaluated when exported
+        String generators = "[{\"id\":\"GEN\",\"type\":\"GENERATOR\"},{\"id\":\"GEN2\",\"type\":\"GENERATOR\"}]";
+        checkFilterExport(filterId1, null, generators);
+        assertEquals(evaluations + 3, getEvaluationCount(FilterType.IDENTIFIER_LIST) + getEvaluationCount(FilterType.EXPERT));
+        checkFilterExport(filterId1, null, generators);
+        assertEquals(evaluations + 3, getEvaluationCount(FilterType.IDENTIFIER_LIST) + getEvaluationCount(FilterType.EXPERT));
+    }
+
+    @Test
+    public void testCountFilters() throws Exception {
+        UUID filterId1 = UUID.randomUUID();
+        insertFilter(filterId1, new IdentifierListFilter(filterId1, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN", null), new IdentifierListFilterEquipmentAttributes("GEN2", null))));
+        UUID filterId2 = UUID.randomUUID();
+        insertFilter(filterId2, buildFilterUuidExpertFilter(filterId2, filterId1));
+        UUID scriptFilterId = UUID.randomUUID();
+        insertFilter(scriptFilterId, new ScriptFilter(scriptFilterId, new Date(), "test"));
+
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId1 + "/count").param("networkUuid", NETWORK_UUID.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("2"));
+        mvc.perform(get(URL_TEMPLATE + "/" + filterId2 + "/count").param("networkUuid", NETWORK_UUID.toString()).param("variantId", VARIANT_ID_1))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1"));
+        mvc.perform(get(URL_TEMPLATE + "/" + UUID.randomUUID() + "/count").param("networkUuid", NETWORK_UUID.toString()))
+                .andExpect(status().isNotFound());
+
+        // the counts are given in the order of the ids, without the filters not found
+        mvc.perform(get(URL_TEMPLATE + "/count")
+                        .param("ids", filterId2.toString(), UUID.randomUUID().toString(), filterId1.toString(), filterId2.toString())
+                        .param("networkUuid", NETWORK_UUID.toString()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("{\"" + filterId2 + "\":2,\"" + filterId1 + "\":2}"));
+        assertThrows(PowsyblException.class, () -> filterService.countFilters(List.of(filterId1, scriptFilterId), NETWORK_UUID, null));
+    }
+
+    @Test
+    public void testExpertFilterPlan() throws Exception {
+        UUID identifierListFilterId = UUID.randomUUID();
+        insertFilter(identifierListFilterId, new IdentifierListFilter(identifierListFilterId, new Date(), EquipmentType.GENERATOR,
+                List.of(new IdentifierListFilterEquipmentAttributes("GEN2", null))));
+        List<AbstractExpertRule> rules = List.of(
+                StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.IN).values(Set.of("gen", "LOAD")).build(),
+                StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.NOT_IN).values(Set.of("Gen2")).build(),
+                NumberExpertRule.builder().field(FieldType.MAX_P).operator(OperatorType.BETWEEN).values(new TreeSet<>(Set.of(9000., 10000.))).build(),
+                NumberExpertRule.builder().field(FieldType.TARGET_P).operator(OperatorType.GREATER).value(500.).build(),
+                NumberExpertRule.builder().field(FieldType.MIN_P).operator(OperatorType.IN).values(Set.of(-9999.99)).build(),
+                FilterUuidExpertRule.builder().field(FieldType.ID).operator(OperatorType.IS_PART_OF).values(Set.of(identifierListFilterId.toString())).build(),
+                FilterUuidExpertRule.builder().field(FieldType.ID).operator(OperatorType.IS_NOT_PART_OF).values(Set.of(identifierListFilterId.toString())).build(),
+                // without compiled form
+                BooleanExpertRule.builder().field(FieldType.VOLTAGE_REGULATOR_ON).operator(OperatorType.EQUALS).value(true).build());
+        List<AbstractExpertRule> trees = new ArrayList<>(rules);
+        for (AbstractExpertRule rule1 : rules) {
+            for (AbstractExpertRule rule2 : rules) {
+                trees.add(buildCombinatorRule(CombinatorType.AND, rule1, buildCombinatorRule(CombinatorType.AND, rule2)));
+                trees.add(buildCombinatorRule(CombinatorType.OR, buildCombinatorRule(CombinatorType.OR, rule1), rule2));
+            }
+        }
+
+        // the compiled rules match the same equipments as the rules themselves
+        FilterLoader filterLoader = new FilterLoaderImpl(filterService);
+        for (AbstractExpertRule tree : trees) {
+            ExpertFilter filter = new ExpertFilter(UUID.randomUUID(), new Date(), EquipmentType.GENERATOR, tree);
+            List<String> ids = FiltersUtils.getIdentifiables(filter, network, filterLoader).stream().map(Identifiable::getId).toList();
+            assertEquals(ids, FiltersUtils.getIdentifiables(ExpertFilterPlan.compile(tree).bind(filter, null), network, filterLoader).stream()
+                    .map(Identifiable::getId).toList());
+        }
+        assertEquals(List.of("GEN"), FiltersUtils.getIdentifiables(ExpertFilterPlan.compile(rules.get(0))
+                .bind(new ExpertFilter(null, null, EquipmentType.GENERATOR, rules.get(0)), null), network, filterLoader).stream().map(Identifiable::getId).toList());
+
+        // a plan is compiled once for each version of a filter
+        ExpertFilter filter = new ExpertFilter(UUID.randomUUID(), new Date(), EquipmentType.GENERATOR, rules.get(0));
+        ExpertFilterPlan plan = planCache.get(filter);
+        assertSame(plan, planCache.get(filter));
+        assertNotSame(plan, planCache.get(new ExpertFilter(filter.getId(), new Date(filter.getModificationDate().getTime() + 1), EquipmentType.GENERATOR, rules.get(0))));
+
+        UUID expertFilterId = UUID.randomUUID();
+        insertFilter(expertFilterId, buildFilterUuidExpertFilter(expertFilterId, identifierListFilterId));
+        double hits = getCacheGets(ExpertFilterPlanCache.CACHE_NAME, "hit");
+        double misses = getCacheGets(ExpertFilterPlanCache.CACHE_NAME, "miss");
+        assertEquals(Optional.of(1L), filterService.countFilter(expertFilterId, NETWORK_UUID, null));
+        checkFilterExport(expertFilterId, null, "[{\"id\":\"GEN2\",\"type\":\"GENERATOR\"}]");
+        assertEquals(hits + 1, getCacheGets(ExpertFilterPlanCache.CACHE_NAME, "hit"), 0);
+        assertEquals(misses + 1, getCacheGets(ExpertFilterPlanCache.CACHE_NAME, "miss"), 0);
+    }
+
+    @Test
+    public void testNetworkIndex() throws Exception {
+        Map<EquipmentType, List<AbstractExpertRule>> rulesByType = Map.of(
+                EquipmentType.GENERATOR, List.of(
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.EQUALS).value(24.).build(),
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.BETWEEN).values(new TreeSet<>(Set.of(20., 30.))).build(),
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.GREATER).value(24.).build(),
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.IN).values(Set.of(24., 380.)).build(),
+                        EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.EQUALS).value("FR").build(),
+                        EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.IN).values(Set.of("BE")).build(),
+                        StringExpertRule.builder().field(FieldType.VOLTAGE_LEVEL_ID).operator(OperatorType.IS).value("vlgen").build(),
+                        StringExpertRule.builder().field(FieldType.VOLTAGE_LEVEL_ID).operator(OperatorType.IN).values(Set.of("VLGEN", "VLHV1")).build(),
+                        PropertiesExpertRule.builder().field(FieldType.SUBSTATION_PROPERTIES).operator(OperatorType.IN)
+                                .propertyName("region").propertyValues(List.of("NORTH")).build()),
+                EquipmentType.LINE, List.of(
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE_1).operator(OperatorType.LOWER_OR_EQUALS).value(380.).build(),
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE_2).operator(OperatorType.LOWER).value(380.).build(),
+                        EnumExpertRule.builder().field(FieldType.COUNTRY_1).operator(OperatorType.IN).values(Set.of("FR")).build(),
+                        StringExpertRule.builder().field(FieldType.VOLTAGE_LEVEL_ID_2).operator(OperatorType.IS).value("VLHV2").build()),
+                EquipmentType.VOLTAGE_LEVEL, List.of(
+                        NumberExpertRule.builder().field(FieldType.NOMINAL_VOLTAGE).operator(OperatorType.GREATER_OR_EQUALS).value(150.).build(),
+                        EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.EQUALS).value("BE").build()),
+                EquipmentType.SUBSTATION, List.of(
+                        PropertiesExpertRule.builder().field(FieldType.FREE_PROPERTIES).operator(OperatorType.IN)
+                                .propertyName("region").propertyValues(List.of("north", "south")).build(),
+                        EnumExpertRule.builder().field(FieldType.COUNTRY).operator(OperatorType.IN).values(Set.of("FR", "BE")).build()));
+
+        // the rules selecting their equipments from the indexes match the same equipments as the rules themselves
+        FilterLoader filterLoader = new FilterLoaderImpl(filterService);
+        NetworkIndex networkIndex = new NetworkIndex(network, 32);
+        AbstractExpertRule notGen2Rule = StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.NOT_IN).values(Set.of("GEN2")).build();
+        rulesByType.forEach((equipmentType, rules) -> {
+            List<AbstractExpertRule> trees = new ArrayList<>(rules);
+            rules.forEach(rule -> {
+                trees.add(buildCombinatorRule(CombinatorType.AND, notGen2Rule, rule));
+                trees.add(buildCombinatorRule(CombinatorType.OR, notGen2Rule, rule));
+            });
+            trees.forEach(tree -> {
+                ExpertFilter filter = new ExpertFilter(UUID.randomUUID(), new Date(), equipmentType, tree);
+                List<String> ids = FiltersUtils.getIdentifiables(filter, network, filterLoader).stream().map(Identifiable::getId).toList();
+                assertEquals(ids, FiltersUtils.getIdentifiables(ExpertFilterPlan.compile(tree).bind(filter, networkIndex), network, filterLoader).stream()
+                        .map(Identifiable::getId).toList());
+                ExpertFilterPlan.getSelectedIdentifiables(ExpertFilterPlan.compile(tree).bind(filter, networkIndex), filterLoader)
+                        .ifPresent(identifiables -> assertEquals(ids, identifiables.stream().map(Identifiable::getId).toList()));
+                ExpertFilterPlan.countSelectedIdentifiables(ExpertFilterPlan.compile(tree).bind(filter, networkIndex), filterLoader)
+                        .ifPresent(count -> assertEquals(ids.size(), count));
+            });
+        });
+        // one index for each field of each type of equipment
+        assertEquals(12, networkIndex.size());
+        assertEquals(List.of("GEN", "GEN2"), FiltersUtils.getIdentifiables(ExpertFilterPlan.compile(rulesByType.get(EquipmentType.GENERATOR).get(0))
+                .bind(new ExpertFilter(null, null, EquipmentType.GENERATOR, null), networkIndex), network, filterLoader).stream().map(Identifiable::getId).toList());
+
+        // only the equipments selected from the indexes are evaluated, when they bound the ones matching the rules
+        List<String> evaluatedIds = new ArrayList<>();
+        AbstractExpertRule recordingRule = new AbstractExpertRule() {
+            @Override
+            public boolean evaluateRule(Identifiable<?> identifiable, FilterLoader loader, Map<UUID, FilterEquipments> cachedUuidFilters) {
+                evaluatedIds.add(identifiable.getId());
+                return true;
+            }
+
+            @Override
+            public DataType getDataType() {
+                return DataType.BOOLEAN;
+            }
+
+            @Override
+            public String getStringValue() {
+                return null;
+            }
+        };
+        AbstractExpertRule vlhvRule = StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.BEGINS_WITH).value("VLHV").build();
+        ExpertFilter voltageLevelFilter = new ExpertFilter(null, null, EquipmentType.VOLTAGE_LEVEL, null);
+        assertEquals(Optional.of(List.of("VLHV1", "VLHV2")), ExpertFilterPlan.getSelectedIdentifiables(ExpertFilterPlan.compile(buildCombinatorRule(CombinatorType.AND,
+                        recordingRule, rulesByType.get(EquipmentType.VOLTAGE_LEVEL).get(0), vlhvRule)).bind(voltageLevelFilter, networkIndex), filterLoader)
+                .map(identifiables -> identifiables.stream().map(Identifiable::getId).toList()));
+        assertEquals(List.of("VLHV1", "VLHV2", "VLLOAD"), evaluatedIds);
+        // a rule without index in a disjunction may match any equipment
+        assertTrue(ExpertFilterPlan.getSelectedIdentifiables(ExpertFilterPlan.compile(buildCombinatorRule(CombinatorType.OR,
+                rulesByType.get(EquipmentType.VOLTAGE_LEVEL).get(0), vlhvRule)).bind(voltageLevelFilter, networkIndex), filterLoader).isEmpty());
+        assertTrue(ExpertFilterPlan.getSelectedIdentifiables(ExpertFilterPlan.compile(vlhvRule).bind(voltageLevelFilter, networkIndex), filterLoader).isEmpty());
+
+        // beyond the maximum number of indexes, the least recently used one is dropped
+        NetworkIndex smallNetworkIndex = new NetworkIndex(network, 2);
+        rulesByType.get(EquipmentType.GENERATOR).forEach(rule -> {
+            ExpertFilter filter = new ExpertFilter(null, null, EquipmentType.GENERATOR, rule);
+            assertEquals(FiltersUtils.getIdentifiables(filter, network, filterLoader).stream().map(Identifiable::getId).toList(),
+                    ExpertFilterPlan.getSelectedIdentifiables(ExpertFilterPlan.compile(rule).bind(filter, smallNetworkIndex), filterLoader).orElseThrow().stream()
+                            .map(Identifiable::getId).toList());
+        });
+        assertEquals(2, smallNetworkIndex.size());
+
+        // the indexes are kept with the cached network, for each variant, until it is invalidated
+        networkCache.invalidate(NETWORK_UUID);
+        UUID expertFilterId = UUID.randomUUID();
+        insertFilter(expertFilterId, new ExpertFilter(expertFilterId, new Date(), EquipmentType.GENERATOR, rulesByType.get(EquipmentType.GENERATOR).get(4)));
+        assertEquals(Optional.of(2L), filterService.countFilter(expertFilterId, NETWORK_UUID, null));
+        NetworkIndex cachedNetworkIndex;
+        try (NetworkCache.Lease lease = networkCache.lease(NETWORK_UUID, null)) {
+            cachedNetworkIndex = lease.getIndex();
+            assertEquals(1, cachedNetworkIndex.size());
+        }
+        try (NetworkCache.Lease lease = networkCache.lease(NETWORK_UUID, null);
+             NetworkCache.Lease variantLease = networkCache.lease(NETWORK_UUID, VARIANT_ID_1)) {
+            assertSame(cachedNetworkIndex, lease.getIndex());
+            assertNotSame(cachedNetworkIndex, variantLease.getIndex());
+        }
+        networkCache.invalidate(NETWORK_UUID);
+        try (NetworkCache.Lease lease = networkCache.lease(NETWORK_UUID, null)) {
+            assertNotSame(cachedNetworkIndex, lease.getIndex());
+        }
+    }
+
+    private static CombinatorExpertRule buildCombinatorRule(CombinatorType combinator, AbstractExpertRule... rules) {
+        return CombinatorExpertRule.builder().combinator(combinator).rules(List.of(rules)).build();
+    }
+
+    private static ExpertFilter buildFilterUuidExpertFilter(UUID id, UUID... referencedFilterIds) {
+        return new ExpertFilter(id, new Date(), EquipmentType.GENERATOR, CombinatorExpertRule.builder()
+                .combinator(CombinatorType.OR)
+                .rules(Arrays.stream(referencedFilterIds)
+                        .<AbstractExpertRule>map(referencedFilterId -> FilterUuidExpertRule.builder().values(Set.of(referencedFilterId.toString()))
+                                .field(FieldType.ID).operator(OperatorType.IS_PART_OF).build())
+                        .toList())
+                .build());
+    }
+
+    private void checkFilterExport(UUID filterId, String variantId, String expectedJson) throws Exception {
+        MockHttpServletRequestBuilder request = get(URL_TEMPLATE + "/" + filterId + "/export").param("networkUuid", NETWORK_UUID.toString());
+        if (variantId != null) {
+            request.param("variantId", variantId);
+        }
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().json(expectedJson));
+    }
+
+    private long getEvaluationCount(FilterType filterType) {
+        return meterRegistry.find(FilterService.EVALUATION_TIMER).tag("type", filterType.name()).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private double getCacheGets(String result) {
+        return getCacheGets(FilterCache.CACHE_NAME, result);
+    }
+
+    private double getCacheGets(String cacheName, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", result).counter().count();
+    }
+
+    @Test
+    public void testGetFiltersPages() throws Exception {
+        createFiltersToDelete();
+        createFiltersToDelete();
+        String allFilters = mvc.perform(get(URL_TEMPLATE)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        List<UUID> expectedIds = objectMapper.readValue(allFilters, new TypeReference<List<FilterAttributes>>() { }).stream()
+                .sorted(FilterCursor.ORDER)
+                .map(IFilterAttributes::getId)
+                .toList();
+        assertEquals(12, expectedIds.size());
+
+        for (int limit : List.of(1, 5, 6, 12, 20)) {
+            List<UUID> ids = new ArrayList<>();
+            String after = null;
+            int pageCount = 0;
+            do {
+                JsonNode page = getFiltersPage(limit, after);
+                assertTrue(page.get("filters").size() <= limit);
+                page.get("filters").forEach(filterAttributes -> ids.add(UUID.fromString(filterAttributes.get("id").asText())));
+                after = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+                pageCount++;
+            } while (after != null);
+            assertEquals(expectedIds, ids);
+            assertEquals((expectedIds.size() + limit - 1) / limit, pageCount);
+        }
+
+        mvc.perform(get(URL_TEMPLATE).param("limit", "0")).andExpect(status().isBadRequest());
+        mvc.perform(get(URL_TEMPLATE).param("limit", "" + (FilterService.MAX_PAGE_SIZE + 1))).andExpect(status().isBadRequest());
+        mvc.perform(get(URL_TEMPLATE).param("limit", "5").param("after", "not a cursor")).andExpect(status().isBadRequest());
+
+        // the whole listing streamed, one filter per line
+        MvcResult result = mvc.perform(get(URL_TEMPLATE).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<UUID> streamedIds = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            streamedIds.add(objectMapper.readValue(line, FilterAttributes.class).getId());
+        }
+        assertEquals(expectedIds, streamedIds);
+
+        // read page after page
+        List<UUID> pagedIds = new ArrayList<>();
+        filterService.streamFilters(filterAttributes -> pagedIds.add(filterAttributes.getId()), 3);
+        assertEquals(expectedIds, pagedIds);
+    }
+
+    private JsonNode getFiltersPage(int limit, String after) throws Exception {
+        MockHttpServletRequestBuilder request = get(URL_TEMPLATE).param("limit", "" + limit);
+        if (after != null) {
+            request.param("after", after);
+        }
+        String response = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private List<UUID> createFiltersToDelete() {
+        List<AbstractFilter> filters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            filters.add(new ExpertFilter(UUID.randomUUID(), new Date(), EquipmentType.GENERATOR, createLargeExpertRules(i, "north")));
+            filters.add(new IdentifierListFilter(UUID.randomUUID(), new Date(), EquipmentType.GENERATOR,
+                    List.of(new IdentifierListFilterEquipmentAttributes("GEN" + i, 1d), new IdentifierListFilterEquipmentAttributes("GEN", null))));
+        }
+        return filterService.createFilters(filters).stream().map(AbstractFilter::getId).toList();
+    }
+
+    private Map<String, Long> countFilterRows() {
+        Map<String, Long> rowCounts = new TreeMap<>();
+        for (String table : List.of("expert_filter", "expert_rule", "expert_rule_value", "expert_rule_properties", "expert_rule_property_value",
+                "identifier_list_filter", "identifier_list_filter_equipment", "identifier_list_filter_filter_equipment_entity_list")) {
+            rowCounts.put(table, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class));
+        }
+        return rowCounts;
+    }
+
+    @Test
+    public void testCreateFiltersInBatchStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        long batches = JdbcBatchCounter.BATCHES.get();
+        filterService.createFilters(createLineExpertFilters(1));
+        long statementsForOneFilter = statistics.getPrepareStatementCount();
+        long batchesForOneFilter = JdbcBatchCounter.BATCHES.get() - batches;
+        statistics.clear();
+        batches = JdbcBatchCounter.BATCHES.get();
+        filterService.createFilters(createLineExpertFilters(20));
+        long statementsForSomeFilters = statistics.getPrepareStatementCount();
+        long batchesForSomeFilters = JdbcBatchCounter.BATCHES.get() - batches;
+        long entityLoadsForSomeFilters = statistics.getEntityLoadCount();
+        statistics.setStatisticsEnabled(false);
+
+        // the filters and their rules are persisted without being selected first, in one batch for each table
+        assertTrue(batchesForOneFilter > 0);
+        assertEquals(0, entityLoadsForSomeFilters);
+        assertEquals(statementsForOneFilter, statementsForSomeFilters);
+        assertEquals(batchesForOneFilter, batchesForSomeFilters);
+        assertEquals(21, expertFilterRepository.count());
+    }
+
+    /**
+     * Counts the JDBC batches executed by all the sessions
+     */
+    public static class JdbcBatchCounter implements SessionEventListener {
+        static final AtomicLong BATCHES = new AtomicLong();
+
+        @Override
+        public void jdbcExecuteBatchStart() {
+            BATCHES.incrementAndGet();
+        }
+    }
+
+    private List<AbstractFilter> createLineExpertFilters(int count) {
+        List<AbstractFilter> filters = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<AbstractExpertRule> rules = new ArrayList<>();
+            createExpertLineRules(rules, COUNTRIES1, COUNTRIES2, new TreeSet<>(Set.of(5., 8.)), new TreeSet<>(Set.of(6.)));
+            // a nested group, so that the rules of a filter are spread over several levels of the tree
+            rules.add(CombinatorExpertRule.builder().combinator(CombinatorType.OR).rules(List.of(
+                    StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.IS).value("NHV1_NHV2_1").build(),
+                    StringExpertRule.builder().field(FieldType.ID).operator(OperatorType.IS).value("NHV1_NHV2_2").build())).build());
+            filters.add(new ExpertFilter(UUID.randomUUID(), new Date(), EquipmentType.LINE,
+                    CombinatorExpertRule.builder().combinator(CombinatorType.AND).rules(rules).build()));
+        }
+        return filters;
+    }
+
     @Test
     public void testGetFiltersByIds() throws Exception {
         UUID filterId3 = UUID.fromString("42b70a4d-e0c4-413a-8e3e-78e9027d300c");